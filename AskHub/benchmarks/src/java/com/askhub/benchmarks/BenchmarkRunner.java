@@ -0,0 +1,35 @@
+package com.askhub.benchmarks;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH options and, unless
+ * -rf/-rff are given, writes JSON results to results/jmh-&lt;timestamp&gt;.json so
+ * runs from different releases can be compared (e.g. with jmh.morethan.io).
+ *
+ * Usage: java -jar target/benchmarks.jar [jmh options] [benchmark regexp]
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            new File("results").mkdirs();
+            String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            options.result("results/jmh-" + stamp + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+}
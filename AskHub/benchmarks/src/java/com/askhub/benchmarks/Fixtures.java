@@ -0,0 +1,85 @@
+package com.askhub.benchmarks;
+import com.askhub.models.Answer;
+import com.askhub.models.Notification;
+import com.askhub.models.Question;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+/**
+ * Deterministic model lists shaped like what the APIs return, shared by the
+ * mapping and serialization benchmarks.
+ */
+public class Fixtures {
+    private static final String[] WORDS = ("java sql index query thread lock cache latency pool connection transaction " +
+            "vote answer question topic notification swing javalin jackson json mysql").split(" ");
+    private static final String[] NOTIFICATION_TYPES = {"NEW_ANSWER", "NEW_COMMENT", "VOTE", "ACCEPTED_ANSWER"};
+    private static final long NOW = 1700000000000L;
+    public static List<Question> questions(int count) {
+        Random rng = new Random(42);
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Question q = new Question();
+            q.setId(i);
+            q.setUserId(1 + rng.nextInt(1000));
+            q.setTopicId(1 + rng.nextInt(50));
+            q.setTitle(text(rng, 10));
+            q.setContent(text(rng, 120));
+            q.setStatus(rng.nextBoolean() ? "OPEN" : "ANSWERED");
+            q.setViewCount(rng.nextInt(100000));
+            q.setVoteCount(rng.nextInt(500) - 20);
+            q.setAnswerCount(rng.nextInt(30));
+            q.setCommentCount(rng.nextInt(20));
+            q.setCreatedAt(new Timestamp(NOW - i * 60000L));
+            q.setUpdatedAt(new Timestamp(NOW - i * 30000L));
+            q.setUsername("user" + q.getUserId());
+            q.setTopicName(WORDS[q.getTopicId() % WORDS.length]);
+            questions.add(q);
+        }
+        return questions;
+    }
+    public static List<Answer> answers(int count) {
+        Random rng = new Random(43);
+        List<Answer> answers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Answer a = new Answer();
+            a.setId(i);
+            a.setQuestionId(1);
+            a.setUserId(1 + rng.nextInt(1000));
+            a.setContent(text(rng, 80));
+            a.setVoteCount(rng.nextInt(200) - 10);
+            a.setAccepted(i == 1);
+            a.setCommentCount(rng.nextInt(10));
+            a.setCreatedAt(new Timestamp(NOW - i * 60000L));
+            a.setUpdatedAt(new Timestamp(NOW - i * 30000L));
+            a.setUsername("user" + a.getUserId());
+            answers.add(a);
+        }
+        return answers;
+    }
+    public static List<Notification> notifications(int count) {
+        Random rng = new Random(44);
+        List<Notification> notifications = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Notification n = new Notification();
+            n.setId(i);
+            n.setUserId(1);
+            n.setType(NOTIFICATION_TYPES[rng.nextInt(NOTIFICATION_TYPES.length)]);
+            n.setContent("Someone answered your question: " + text(rng, 6));
+            n.setReferenceType("QUESTION");
+            n.setReferenceId(rng.nextInt(10) == 0 ? null : 1 + rng.nextInt(100000));
+            n.setRead(rng.nextInt(10) < 7);
+            n.setCreatedAt(new Timestamp(NOW - i * 60000L));
+            notifications.add(n);
+        }
+        return notifications;
+    }
+    private static String text(Random rng, int words) {
+        StringBuilder sb = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rng.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.askhub.benchmarks;
+import com.askhub.models.Answer;
+import com.askhub.models.Notification;
+import com.askhub.models.Question;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.plugin.json.JavalinJackson;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Serializing model lists with the same mapper ctx.json() uses, at the page
+ * sizes the list endpoints return.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+    @Param({"20", "100"})
+    public int rows;
+    private ObjectMapper mapper;
+    private List<Question> questions;
+    private List<Answer> answers;
+    private List<Notification> notifications;
+    @Setup
+    public void setup() {
+        mapper = JavalinJackson.Companion.defaultMapper();
+        questions = Fixtures.questions(rows);
+        answers = Fixtures.answers(rows);
+        notifications = Fixtures.notifications(rows);
+    }
+    @Benchmark
+    public byte[] serializeQuestions() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(questions);
+    }
+    @Benchmark
+    public byte[] serializeAnswers() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(answers);
+    }
+    @Benchmark
+    public byte[] serializeNotifications() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(notifications);
+    }
+}
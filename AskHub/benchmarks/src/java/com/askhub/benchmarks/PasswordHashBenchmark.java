@@ -0,0 +1,44 @@
+package com.askhub.benchmarks;
+import com.askhub.utils.PasswordUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Per-call cost of password hashing as paid by /api/login and /api/register,
+ * for picking -Daskhub.password.iterations: one login occupies one
+ * PasswordHasher thread (one core) for this long, so cores / cost is the
+ * sustained login rate. Run with -p iterations=... to try other values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PasswordHashBenchmark {
+    @Param({"100000", "210000", "600000"})
+    public int iterations;
+    public String password = "correct horse battery staple";
+    private String stored;
+    @Setup
+    public void setup() {
+        stored = PasswordUtil.hashPassword(password, iterations);
+    }
+    @Benchmark
+    public String hashPassword() {
+        return PasswordUtil.hashPassword(password, iterations);
+    }
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordUtil.verifyPassword(password, stored);
+    }
+}
@@ -0,0 +1,75 @@
+package com.askhub.benchmarks;
+import com.askhub.dao.VoteDAO;
+import com.askhub.models.Vote;
+import com.askhub.tools.DatasetGenerator;
+import com.askhub.tools.EmbeddedDatabase;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * VoteDAO.vote toggle flow against an embedded database seeded by
+ * DatasetGenerator. Each invocation returns the vote to its starting state,
+ * so the table does not drift across iterations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoteBenchmark {
+    private static final int USERS = 1000;
+    private static final int QUESTIONS = 1000;
+    @State(Scope.Benchmark)
+    public static class Database {
+        final AtomicInteger nextUser = new AtomicInteger();
+        @Setup
+        public void setup() throws Exception {
+            EmbeddedDatabase.configure("mem:vote-benchmark");
+            EmbeddedDatabase.createSchema();
+            new DatasetGenerator(42, USERS, 10, QUESTIONS, 0, 0, 0, 2, 500).run();
+        }
+    }
+    @State(Scope.Thread)
+    public static class Voter {
+        private final VoteDAO voteDAO = new VoteDAO();
+        private int userId;
+        private int targetId;
+        @Setup
+        public void setup(Database db) {
+            userId = db.nextUser.incrementAndGet() % USERS + 1;
+        }
+        Vote next(String voteType) {
+            Vote vote = new Vote();
+            vote.setUserId(userId);
+            vote.setTargetType("QUESTION");
+            vote.setTargetId(targetId);
+            vote.setVoteType(voteType);
+            return vote;
+        }
+    }
+    // create then remove the same upvote
+    @Benchmark
+    @Threads(1)
+    public boolean toggleUpvote(Database db, Voter voter) {
+        voter.targetId = voter.targetId % QUESTIONS + 1;
+        return voter.voteDAO.vote(voter.next("UPVOTE")) & voter.voteDAO.vote(voter.next("UPVOTE"));
+    }
+    // create, flip to a downvote, then remove
+    @Benchmark
+    @Threads(4)
+    public boolean flipVote(Database db, Voter voter) {
+        voter.targetId = voter.targetId % QUESTIONS + 1;
+        VoteDAO dao = voter.voteDAO;
+        return dao.vote(voter.next("UPVOTE")) & dao.vote(voter.next("DOWNVOTE")) & dao.vote(voter.next("DOWNVOTE"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.askhub.dao;
+import com.askhub.benchmarks.Fixtures;
+import com.askhub.models.Answer;
+import com.askhub.models.Notification;
+import com.askhub.models.Question;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Cost of the DAO row mappers alone, fed from an in-memory ResultSet so no
+ * driver or network time is included. Lives in com.askhub.dao to reach the
+ * package-private extract methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMappingBenchmark {
+    @Param({"20", "100"})
+    public int rows;
+    private final QuestionDAO questionDAO = new QuestionDAO();
+    private final AnswerDAO answerDAO = new AnswerDAO();
+    private final NotificationDAO notificationDAO = new NotificationDAO();
+    private SimpleResultSet questions;
+    private SimpleResultSet answers;
+    private SimpleResultSet notifications;
+    @Setup
+    public void setup() {
+        questions = questionResultSet(Fixtures.questions(rows));
+        answers = answerResultSet(Fixtures.answers(rows));
+        notifications = notificationResultSet(Fixtures.notifications(rows));
+    }
+    @Benchmark
+    public List<Question> mapQuestions() throws SQLException {
+        questions.beforeFirst();
+        List<Question> result = new ArrayList<>();
+        while (questions.next()) {
+            result.add(questionDAO.extractQuestionFromResultSet(questions));
+        }
+        return result;
+    }
+    @Benchmark
+    public List<Answer> mapAnswers() throws SQLException {
+        answers.beforeFirst();
+        List<Answer> result = new ArrayList<>();
+        while (answers.next()) {
+            result.add(answerDAO.extractAnswerFromResultSet(answers));
+        }
+        return result;
+    }
+    @Benchmark
+    public List<Notification> mapNotifications() throws SQLException {
+        notifications.beforeFirst();
+        List<Notification> result = new ArrayList<>();
+        while (notifications.next()) {
+            result.add(notificationDAO.extractNotificationFromResultSet(notifications));
+        }
+        return result;
+    }
+    private static SimpleResultSet questionResultSet(List<Question> questions) {
+        SimpleResultSet rs = newResultSet("id", Types.INTEGER, "user_id", Types.INTEGER, "topic_id", Types.INTEGER,
+                "title", Types.VARCHAR, "content", Types.VARCHAR, "status", Types.VARCHAR, "view_count", Types.INTEGER,
+                "vote_count", Types.INTEGER, "answer_count", Types.INTEGER, "comment_count", Types.INTEGER,
+                "created_at", Types.TIMESTAMP, "updated_at", Types.TIMESTAMP, "username", Types.VARCHAR,
+                "topic_name", Types.VARCHAR);
+        for (Question q : questions) {
+            rs.addRow(q.getId(), q.getUserId(), q.getTopicId(), q.getTitle(), q.getContent(), q.getStatus(),
+                    q.getViewCount(), q.getVoteCount(), q.getAnswerCount(), q.getCommentCount(), q.getCreatedAt(),
+                    q.getUpdatedAt(), q.getUsername(), q.getTopicName());
+        }
+        return rs;
+    }
+    private static SimpleResultSet answerResultSet(List<Answer> answers) {
+        SimpleResultSet rs = newResultSet("id", Types.INTEGER, "question_id", Types.INTEGER, "user_id", Types.INTEGER,
+                "content", Types.VARCHAR, "vote_count", Types.INTEGER, "is_accepted", Types.BOOLEAN,
+                "comment_count", Types.INTEGER, "created_at", Types.TIMESTAMP, "updated_at", Types.TIMESTAMP,
+                "username", Types.VARCHAR);
+        for (Answer a : answers) {
+            rs.addRow(a.getId(), a.getQuestionId(), a.getUserId(), a.getContent(), a.getVoteCount(), a.isAccepted(),
+                    a.getCommentCount(), a.getCreatedAt(), a.getUpdatedAt(), a.getUsername());
+        }
+        return rs;
+    }
+    private static SimpleResultSet notificationResultSet(List<Notification> notifications) {
+        SimpleResultSet rs = newResultSet("id", Types.INTEGER, "user_id", Types.INTEGER, "type", Types.VARCHAR,
+                "content", Types.VARCHAR, "reference_type", Types.VARCHAR, "reference_id", Types.INTEGER,
+                "is_read", Types.BOOLEAN, "created_at", Types.TIMESTAMP);
+        for (Notification n : notifications) {
+            rs.addRow(n.getId(), n.getUserId(), n.getType(), n.getContent(), n.getReferenceType(), n.getReferenceId(),
+                    n.isRead(), n.getCreatedAt());
+        }
+        return rs;
+    }
+    // columns given as name, java.sql.Types pairs
+    private static SimpleResultSet newResultSet(Object... columns) {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.setAutoClose(false);
+        for (int i = 0; i < columns.length; i += 2) {
+            rs.addColumn((String) columns[i], (Integer) columns[i + 1], 0, 0);
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,8 @@
+-- Denormalized comment counters on questions and answers.
+ALTER TABLE questions ADD COLUMN comment_count INT DEFAULT 0 AFTER answer_count;
+ALTER TABLE answers ADD COLUMN comment_count INT DEFAULT 0 AFTER is_accepted;
+
+UPDATE questions q
+SET q.comment_count = (SELECT COUNT(*) FROM comments c WHERE c.target_type = 'QUESTION' AND c.target_id = q.id);
+UPDATE answers a
+SET a.comment_count = (SELECT COUNT(*) FROM comments c WHERE c.target_type = 'ANSWER' AND c.target_id = a.id);
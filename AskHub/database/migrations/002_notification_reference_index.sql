@@ -0,0 +1,2 @@
+-- Lets the orphan reaper delete notifications of a removed question/answer/comment by index.
+ALTER TABLE notifications ADD INDEX idx_reference (reference_type, reference_id);
@@ -0,0 +1,3 @@
+-- Soft delete for questions and answers; PurgeWorker removes the rows off-peak.
+ALTER TABLE questions ADD COLUMN deleted_at TIMESTAMP NULL AFTER updated_at, ADD INDEX idx_deleted_at (deleted_at);
+ALTER TABLE answers ADD COLUMN deleted_at TIMESTAMP NULL AFTER updated_at, ADD INDEX idx_deleted_at (deleted_at);
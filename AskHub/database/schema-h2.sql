@@ -0,0 +1,125 @@
+-- H2 (MODE=MySQL) version of schema.sql for the embedded stand-in database.
+-- Same tables and columns; index names are prefixed because H2 scopes them
+-- per schema, and the FULLTEXT index is omitted (search returns no rows).
+DROP TABLE IF EXISTS notifications;
+DROP TABLE IF EXISTS votes;
+DROP TABLE IF EXISTS comments;
+DROP TABLE IF EXISTS answers;
+DROP TABLE IF EXISTS questions;
+DROP TABLE IF EXISTS topics;
+DROP TABLE IF EXISTS users;
+
+CREATE TABLE users (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    full_name VARCHAR(100),
+    role ENUM('USER', 'ADMIN') DEFAULT 'USER',
+    reputation INT DEFAULT 0,
+    avatar_url VARCHAR(255),
+    bio TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    last_login TIMESTAMP NULL,
+    is_active BOOLEAN DEFAULT TRUE,
+    INDEX users_idx_username (username),
+    INDEX users_idx_email (email),
+    INDEX users_idx_role (role)
+);
+
+CREATE TABLE topics (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL UNIQUE,
+    description TEXT,
+    slug VARCHAR(100) NOT NULL UNIQUE,
+    question_count INT DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX topics_idx_slug (slug)
+);
+
+CREATE TABLE questions (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    topic_id INT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content TEXT NOT NULL,
+    status ENUM('OPEN', 'CLOSED', 'ANSWERED', 'PENDING_REVIEW') DEFAULT 'OPEN',
+    view_count INT DEFAULT 0,
+    vote_count INT DEFAULT 0,
+    answer_count INT DEFAULT 0,
+    comment_count INT DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (topic_id) REFERENCES topics(id) ON DELETE CASCADE,
+    INDEX questions_idx_user_id (user_id),
+    INDEX questions_idx_topic_id (topic_id),
+    INDEX questions_idx_status (status),
+    INDEX questions_idx_created_at (created_at),
+    INDEX questions_idx_deleted_at (deleted_at)
+);
+
+CREATE TABLE answers (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    question_id INT NOT NULL,
+    user_id INT NOT NULL,
+    content TEXT NOT NULL,
+    vote_count INT DEFAULT 0,
+    is_accepted BOOLEAN DEFAULT FALSE,
+    comment_count INT DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL,
+    FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX answers_idx_question_id (question_id),
+    INDEX answers_idx_user_id (user_id),
+    INDEX answers_idx_is_accepted (is_accepted),
+    INDEX answers_idx_created_at (created_at),
+    INDEX answers_idx_deleted_at (deleted_at)
+);
+
+CREATE TABLE comments (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    target_type ENUM('QUESTION', 'ANSWER') NOT NULL,
+    target_id INT NOT NULL,
+    content TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX comments_idx_user_id (user_id),
+    INDEX comments_idx_target (target_type, target_id),
+    INDEX comments_idx_created_at (created_at)
+);
+
+CREATE TABLE votes (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    target_type ENUM('QUESTION', 'ANSWER') NOT NULL,
+    target_id INT NOT NULL,
+    vote_type ENUM('UPVOTE', 'DOWNVOTE') NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT votes_unique_vote UNIQUE (user_id, target_type, target_id),
+    INDEX votes_idx_target (target_type, target_id)
+);
+
+CREATE TABLE notifications (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    type ENUM('NEW_ANSWER', 'NEW_COMMENT', 'VOTE', 'ACCEPTED_ANSWER') NOT NULL,
+    content TEXT NOT NULL,
+    reference_type ENUM('QUESTION', 'ANSWER', 'COMMENT') NULL,
+    reference_id INT NULL,
+    is_read BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX notifications_idx_user_id (user_id),
+    INDEX notifications_idx_is_read (is_read),
+    INDEX notifications_idx_created_at (created_at),
+    INDEX notifications_idx_reference (reference_type, reference_id)
+);
+
@@ -0,0 +1,52 @@
+package com.askhub.loadtest;
+import com.askhub.auth.SessionTokens;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Minimal blocking HTTP client over HttpURLConnection. Response bodies are
+ * drained so the keep-alive connection goes back to the JDK pool.
+ */
+public class HttpDriver {
+    private static final int TIMEOUT_MS = 10000;
+    private final String baseUrl;
+    private final ConcurrentHashMap<Integer, String> tokens = new ConcurrentHashMap<>();
+    public HttpDriver(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+    public int send(String method, String path, Integer userId, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        if (userId != null) conn.setRequestProperty("Authorization", "Bearer " + tokenFor(userId));
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+        int status = conn.getResponseCode();
+        InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (in != null) {
+            try (InputStream drain = in) {
+                byte[] buf = new byte[8192];
+                while (drain.read(buf) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+    // Minted here rather than through /api/login; a remote target must share -Daskhub.auth.secret
+    private String tokenFor(int userId) {
+        return tokens.computeIfAbsent(userId, id -> SessionTokens.getInstance().issue(id, false));
+    }
+}
@@ -0,0 +1,120 @@
+package com.askhub.loadtest;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+/**
+ * Per-route latency histograms in microseconds. Worker threads record into
+ * lock-free Recorders; a single reporter thread drains them into the
+ * cumulative histograms every tick, discarding samples taken during warmup.
+ */
+public class LatencyReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> requests = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Histogram window = new Histogram(3);
+    private long windowRequests;
+    private long windowErrors;
+    public LatencyReport() {
+        for (Operation op : Operation.values()) {
+            recorders.put(op, new Recorder(3));
+            totals.put(op, new Histogram(3));
+            requests.put(op, new LongAdder());
+            errors.put(op, new LongAdder());
+        }
+    }
+    // expectedIntervalNanos > 0 back-fills the samples a stalled closed-loop client never sent
+    public void record(Operation op, long latencyNanos, long expectedIntervalNanos, boolean ok) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        if (expectedIntervalNanos > 0) {
+            recorders.get(op).recordValueWithExpectedInterval(micros, TimeUnit.NANOSECONDS.toMicros(expectedIntervalNanos));
+        } else {
+            recorders.get(op).recordValue(micros);
+        }
+        requests.get(op).increment();
+        if (!ok) errors.get(op).increment();
+    }
+    // Called from the reporter thread only.
+    public void drain(boolean measuring) {
+        for (Operation op : Operation.values()) {
+            Histogram interval = recorders.get(op).getIntervalHistogram();
+            if (measuring) {
+                totals.get(op).add(interval);
+                window.add(interval);
+            }
+        }
+        if (!measuring) {
+            for (Operation op : Operation.values()) {
+                requests.get(op).reset();
+                errors.get(op).reset();
+            }
+        }
+    }
+    public void printWindow(PrintStream out, long elapsedSeconds, double windowSeconds) {
+        long requestTotal = sum(requests);
+        long errorTotal = sum(errors);
+        out.printf("[%4ds] %8.1f req/s  p50=%8.2fms  p99=%8.2fms  max=%8.2fms  errors=%d%n", elapsedSeconds,
+                (requestTotal - windowRequests) / windowSeconds, ms(window.getValueAtPercentile(50)),
+                ms(window.getValueAtPercentile(99)), ms(window.getMaxValue()), errorTotal - windowErrors);
+        windowRequests = requestTotal;
+        windowErrors = errorTotal;
+        window.reset();
+    }
+    public void print(PrintStream out, String title, double seconds) {
+        out.println();
+        out.println(title);
+        printHeader(out, "route");
+        for (Operation op : Operation.values()) {
+            Histogram h = totals.get(op);
+            if (h.getTotalCount() == 0) continue;
+            printRow(out, op.getRoute(), h, requests.get(op).sum(), errors.get(op).sum(), seconds);
+        }
+        printTotal(out, "TOTAL", seconds);
+        out.println("(latencies in ms, corrected for coordinated omission)");
+    }
+    // All routes in one row, for lining up several runs under one printHeader
+    public void printTotal(PrintStream out, String label, double seconds) {
+        Histogram all = new Histogram(3);
+        for (Histogram h : totals.values()) all.add(h);
+        printRow(out, label, all, sum(requests), sum(errors), seconds);
+    }
+    public static void printHeader(PrintStream out, String label) {
+        out.printf("%-26s %9s %7s %9s", label, "count", "errors", "req/s");
+        for (double p : PERCENTILES) out.printf(" %9s", "p" + format(p));
+        out.printf(" %9s%n", "max");
+    }
+    // One HdrHistogram percentile file per route, plottable with HistogramLogAnalyzer or hdrhistogram.github.io
+    public void writeHgrm(File dir) throws FileNotFoundException {
+        dir.mkdirs();
+        for (Operation op : Operation.values()) {
+            Histogram h = totals.get(op);
+            if (h.getTotalCount() == 0) continue;
+            try (PrintStream out = new PrintStream(new File(dir, op.getKey() + ".hgrm"))) {
+                h.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+    private static void printRow(PrintStream out, String label, Histogram h, long count, long errorCount, double seconds) {
+        out.printf("%-26s %9d %7d %9.1f", label, count, errorCount, count / seconds);
+        for (double p : PERCENTILES) out.printf(" %9.2f", ms(h.getValueAtPercentile(p)));
+        out.printf(" %9.2f%n", ms(h.getMaxValue()));
+    }
+    private static long sum(Map<Operation, LongAdder> counters) {
+        long total = 0;
+        for (LongAdder c : counters.values()) total += c.sum();
+        return total;
+    }
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+    private static String format(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+}
@@ -0,0 +1,229 @@
+package com.askhub.loadtest;
+import com.askhub.api.ApiServer;
+import com.askhub.tools.DatasetGenerator;
+import com.askhub.tools.EmbeddedDatabase;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+/**
+ * Drives the real API routes with a scenario and prints per-route latency
+ * percentiles. Without --target it generates the scenario's dataset into an
+ * embedded database and starts its own ApiServer, so a full run needs
+ * nothing but the JDK.
+ *
+ * Usage: java -jar target/loadtest.jar [--scenario mixed|write-heavy|many-users|file.properties]
+ *        [--target http://host:7001] [--port 7071] [--hgrm-dir results/]
+ *        [--server-threads platform|virtual|compare]
+ *
+ * With --target the server must hold the same dataset (same dataset.* values,
+ * e.g. loaded with DatasetGenerator) so generated ids and logins resolve,
+ * and the same -Daskhub.auth.secret so the session tokens the driver signs
+ * are accepted.
+ * --server-threads picks how the local server runs its handlers; compare
+ * runs the scenario against each mode in turn on the same dataset and prints
+ * the totals side by side (virtual needs Java 21). The local server runs
+ * without rate limits unless -Daskhub.ratelimit is given.
+ */
+public class LoadTest {
+    private static final int REPORT_EVERY_SECONDS = 5;
+    private final Scenario scenario;
+    private final HttpDriver http;
+    private final LatencyReport report = new LatencyReport();
+    private final int questions;
+    private final int users;
+    private final AtomicLong seeds = new AtomicLong();
+    private volatile boolean running = true;
+    public LoadTest(Scenario scenario, String target) {
+        this.scenario = scenario;
+        this.http = new HttpDriver(target);
+        this.questions = scenario.getDatasetInt("questions", 20000);
+        this.users = scenario.getDatasetInt("users", 5000);
+    }
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        Scenario scenario = Scenario.load(opts.getOrDefault("scenario", "mixed"));
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(scenario.getUsers()));
+        String target = opts.get("target");
+        String threads = opts.getOrDefault("server-threads", "platform");
+        if (target != null) {
+            LoadTest test = new LoadTest(scenario, target);
+            test.run();
+            if (opts.containsKey("hgrm-dir")) test.report.writeHgrm(new File(opts.get("hgrm-dir")));
+            System.exit(0);
+        }
+        List<String> modes = new ArrayList<>();
+        if (threads.equals("compare")) {
+            modes.add("platform");
+            modes.add("virtual");
+        } else if (threads.equals("platform") || threads.equals("virtual")) {
+            modes.add(threads);
+        } else {
+            throw new IllegalArgumentException("--server-threads must be platform, virtual or compare: " + threads);
+        }
+        // every simulated user shares one IP and the hottest ones vote far faster than a person
+        if (System.getProperty("askhub.ratelimit") == null) System.setProperty("askhub.ratelimit", "false");
+        int port = Integer.parseInt(opts.getOrDefault("port", "7071"));
+        generateDataset(scenario);
+        Map<String, LatencyReport> reports = new LinkedHashMap<>();
+        for (String mode : modes) {
+            System.out.println("Starting API server with " + mode + " threads...");
+            ApiServer server = new ApiServer();
+            server.start(port, mode.equals("virtual"));
+            try {
+                LoadTest test = new LoadTest(scenario, "http://localhost:" + port);
+                test.run();
+                if (opts.containsKey("hgrm-dir")) {
+                    File dir = new File(opts.get("hgrm-dir"));
+                    test.report.writeHgrm(modes.size() > 1 ? new File(dir, mode) : dir);
+                }
+                reports.put(mode, test.report);
+            } finally {
+                server.stop();
+            }
+        }
+        if (reports.size() > 1) {
+            System.out.println();
+            System.out.println("Server threads compared on " + scenario.getName());
+            LatencyReport.printHeader(System.out, "threads");
+            for (Map.Entry<String, LatencyReport> e : reports.entrySet()) {
+                e.getValue().printTotal(System.out, e.getKey(), scenario.getDurationSeconds());
+            }
+            System.out.println("(writes from the first run are still in the dataset during the second)");
+        }
+        System.exit(0);
+    }
+    private static void generateDataset(Scenario scenario) throws Exception {
+        System.out.println("Generating dataset for scenario " + scenario.getName() + "...");
+        EmbeddedDatabase.configure("mem:loadtest");
+        EmbeddedDatabase.createSchema();
+        new DatasetGenerator(scenario.getDatasetSeed(), scenario.getDatasetInt("users", 5000),
+                scenario.getDatasetInt("topics", 50), scenario.getDatasetInt("questions", 20000),
+                scenario.getDatasetInt("megathreads", 2), scenario.getDatasetInt("megathreadAnswers", 2000),
+                scenario.getDatasetInt("notifications", 200000), Runtime.getRuntime().availableProcessors(), 1000).run();
+    }
+    public void run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+        System.out.printf("Scenario %s: %s, %d users, warmup %ds, duration %ds%n", scenario.getName(),
+                scenario.getRate() > 0 ? "open loop at " + scenario.getRate() + " req/s" : "closed loop, think time " + scenario.getThinkTimeMs() + "ms",
+                scenario.getUsers(), scenario.getWarmupSeconds(), scenario.getDurationSeconds());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            report.drain(now >= measureStart);
+            if (now >= measureStart) {
+                long elapsed = TimeUnit.NANOSECONDS.toSeconds(now - measureStart);
+                if (elapsed > 0 && elapsed % REPORT_EVERY_SECONDS == 0) report.printWindow(System.out, elapsed, REPORT_EVERY_SECONDS);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        if (scenario.getRate() > 0) {
+            runOpenLoop(end);
+        } else {
+            runClosedLoop(end);
+        }
+        reporter.shutdown();
+        reporter.awaitTermination(5, TimeUnit.SECONDS);
+        report.drain(true);
+        report.print(System.out, "Results for " + scenario.getName(), scenario.getDurationSeconds());
+    }
+    // Arrivals follow a Poisson process at the scenario rate. Latency counts from the
+    // intended start, so time spent queued behind a slow server is not hidden.
+    private void runOpenLoop(long end) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(scenario.getUsers());
+        SplittableRandom arrivals = new SplittableRandom(scenario.getDatasetSeed());
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / scenario.getRate();
+        long next = System.nanoTime();
+        while (next < end) {
+            next += (long) (-Math.log(1 - arrivals.nextDouble()) * meanGapNanos);
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            final long intended = next;
+            workers.execute(() -> execute(rng(), intended, 0));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            System.out.println("Server did not drain the backlog within 30s");
+            workers.shutdownNow();
+        }
+    }
+    // Each virtual user waits thinkTimeMs between requests; a stall is back-filled with
+    // the samples the user would have produced at that cadence.
+    private void runClosedLoop(long end) throws InterruptedException {
+        long thinkNanos = TimeUnit.MILLISECONDS.toNanos(scenario.getThinkTimeMs());
+        Thread[] clients = new Thread[scenario.getUsers()];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Thread(() -> {
+                SplittableRandom rng = rng();
+                while (running && System.nanoTime() < end) {
+                    execute(rng, System.nanoTime(), thinkNanos);
+                    if (thinkNanos > 0) LockSupport.parkNanos(thinkNanos);
+                }
+            }, "loadtest-user-" + i);
+            clients[i].start();
+        }
+        for (Thread t : clients) {
+            t.join();
+        }
+    }
+    private void execute(SplittableRandom rng, long intendedStart, long expectedIntervalNanos) {
+        Operation op = scenario.pick(rng);
+        boolean ok;
+        try {
+            int status = send(op, rng);
+            ok = status < 400;
+        } catch (IOException e) {
+            ok = false;
+        }
+        report.record(op, System.nanoTime() - intendedStart, expectedIntervalNanos, ok);
+    }
+    private int send(Operation op, SplittableRandom rng) throws IOException {
+        int userId = zipf(rng, users);
+        switch (op) {
+            case LIST_QUESTIONS:
+                // first pages dominate; a third of the lists are filtered by a hot topic
+                String query = "?page=" + zipf(rng, 50) + "&pageSize=20";
+                if (rng.nextInt(3) == 0) query += "&topicId=" + zipf(rng, scenario.getDatasetInt("topics", 50));
+                return http.send("GET", "/api/questions" + query, null, null);
+            case GET_QUESTION:
+                return http.send("GET", "/api/questions/" + zipf(rng, questions), null, null);
+            case VOTE:
+                String voteType = rng.nextInt(10) < 8 ? "UPVOTE" : "DOWNVOTE";
+                return http.send("POST", "/api/votes", userId, "{\"targetType\":\"QUESTION\",\"targetId\":"
+                        + zipf(rng, questions) + ",\"voteType\":\"" + voteType + "\"}");
+            case NOTIFICATIONS:
+                return http.send("GET", "/api/notifications?limit=20", userId, null);
+            case LOGIN:
+                return http.send("POST", "/api/login", null, "{\"username\":\"user" + userId
+                        + "\",\"password\":\"" + DatasetGenerator.PASSWORD + "\"}");
+            default:
+                throw new IllegalArgumentException(op.name());
+        }
+    }
+    private SplittableRandom rng() {
+        return new SplittableRandom(scenario.getDatasetSeed() * 31 + seeds.incrementAndGet());
+    }
+    // Id in 1..n; low ids are the hot keys, steeper with a larger skew.
+    private int zipf(SplittableRandom rng, int n) {
+        double s = scenario.getSkew();
+        double u = rng.nextDouble();
+        if (Math.abs(s - 1) < 1e-9) return (int) Math.min(n, Math.floor(Math.pow(n + 1, u)));
+        double x = Math.pow((Math.pow(n + 1, 1 - s) - 1) * u + 1, 1 / (1 - s));
+        return (int) Math.min(n, Math.floor(x));
+    }
+}
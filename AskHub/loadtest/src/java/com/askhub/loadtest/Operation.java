@@ -0,0 +1,24 @@
+package com.askhub.loadtest;
+/**
+ * Routes the harness can drive. The key doubles as the scenario mix property
+ * (mix.&lt;key&gt;) and the route as the report label.
+ */
+public enum Operation {
+    LIST_QUESTIONS("listQuestions", "GET /api/questions"),
+    GET_QUESTION("getQuestion", "GET /api/questions/{id}"),
+    VOTE("vote", "POST /api/votes"),
+    NOTIFICATIONS("notifications", "GET /api/notifications"),
+    LOGIN("login", "POST /api/login");
+    private final String key;
+    private final String route;
+    Operation(String key, String route) {
+        this.key = key;
+        this.route = route;
+    }
+    public String getKey() {
+        return key;
+    }
+    public String getRoute() {
+        return route;
+    }
+}
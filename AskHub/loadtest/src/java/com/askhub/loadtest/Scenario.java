@@ -0,0 +1,85 @@
+package com.askhub.loadtest;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+/**
+ * A traffic description loaded from a .properties file: arrival model, mix
+ * of operations, key skew and the dataset to generate for a local run. See
+ * scenarios/mixed.properties for the keys.
+ */
+public class Scenario {
+    private final String name;
+    private final Properties props;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private final int totalWeight;
+    private Scenario(String name, Properties props) {
+        this.name = name;
+        this.props = props;
+        int total = 0;
+        for (Operation op : Operation.values()) {
+            int weight = getInt("mix." + op.getKey(), 0);
+            if (weight > 0) {
+                mix.put(op, weight);
+                total += weight;
+            }
+        }
+        if (total == 0) throw new IllegalArgumentException("Scenario " + name + " has no mix.* weights");
+        this.totalWeight = total;
+    }
+    // nameOrPath is a file path, or the name of a bundled scenario ("mixed", "write-heavy")
+    public static Scenario load(String nameOrPath) throws IOException {
+        Properties props = new Properties();
+        File file = new File(nameOrPath);
+        try (InputStream in = file.isFile() ? new FileInputStream(file)
+                : Scenario.class.getResourceAsStream("/scenarios/" + nameOrPath + ".properties")) {
+            if (in == null) throw new IOException("Unknown scenario: " + nameOrPath);
+            props.load(in);
+        }
+        return new Scenario(file.isFile() ? file.getName() : nameOrPath, props);
+    }
+    public Operation pick(SplittableRandom rng) {
+        int r = rng.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        throw new IllegalStateException();
+    }
+    public String getName() {
+        return name;
+    }
+    // requests per second; 0 selects the closed loop
+    public double getRate() {
+        return Double.parseDouble(props.getProperty("rate", "0"));
+    }
+    public int getUsers() {
+        return getInt("users", 32);
+    }
+    public long getThinkTimeMs() {
+        return getInt("thinkTimeMs", 0);
+    }
+    public int getWarmupSeconds() {
+        return getInt("warmupSeconds", 10);
+    }
+    public int getDurationSeconds() {
+        return getInt("durationSeconds", 60);
+    }
+    public double getSkew() {
+        return Double.parseDouble(props.getProperty("skew", "1.1"));
+    }
+    public long getDatasetSeed() {
+        return Long.parseLong(props.getProperty("dataset.seed", "42"));
+    }
+    public int getDatasetInt(String key, int defaultValue) {
+        return getInt("dataset." + key, defaultValue);
+    }
+    private int getInt(String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -27,6 +27,12 @@ public class AskHubApp {
             new Thread(() -> com.askhub.api.ApiServer.main(new String[]{})).start();
         }
 
+        // Flag UI actions that fan out into many queries
+        com.askhub.metrics.QueryBudget.installSwing();
+
+        // Background jobs (orphan reaping, purging, the availability filters) run in the API
+        // server only; deletes made here are cleaned up there
+
         SwingUtilities.invokeLater(() -> {
             LoginFrame loginFrame = new LoginFrame();
             loginFrame.setVisible(true);
@@ -0,0 +1,90 @@
+package com.askhub.api;
+
+import com.askhub.auth.AuthFilter;
+import com.askhub.dao.OrphanReaper;
+import com.askhub.dao.PurgeWorker;
+import com.askhub.metrics.QueryStats;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.tools.DataExporter;
+import io.javalin.Javalin;
+import io.javalin.http.Handler;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AdminApi {
+
+    public static void registerRoutes(Javalin app) {
+        app.get("/api/admin/maintenance/orphans", orphanStats);
+        app.get("/api/admin/maintenance/purge", purgeStats);
+        app.get("/api/admin/export", export);
+        app.get("/api/admin/queries", topQueries);
+        app.delete("/api/admin/queries", resetQueries);
+        app.post("/api/admin/recording", startRecording);
+        app.delete("/api/admin/recording", stopRecording);
+    }
+
+    public static Handler orphanStats = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        ctx.json(OrphanReaper.getInstance().getStats());
+    };
+
+    public static Handler purgeStats = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        ctx.json(PurgeWorker.getInstance().getStats());
+    };
+
+    // Hottest SQL fingerprints; sort=total|count|p99|max, top=N
+    public static Handler topQueries = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        int top = ctx.queryParamAsClass("top", Integer.class).getOrDefault(20);
+        String sort = ctx.queryParam("sort");
+        ctx.json(QueryStats.getInstance().top(top, sort));
+    };
+
+    public static Handler resetQueries = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        QueryStats.getInstance().reset();
+        ctx.status(204);
+    };
+
+    // Flight Recorder with the JDK defaults plus jfr/askhub.jfc, until DELETE returns the .jfr file
+    public static Handler startRecording = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        if (Jfr.startRecording()) ctx.status(201).json("recording"); else ctx.status(409).json("already_recording");
+    };
+
+    public static Handler stopRecording = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        java.nio.file.Path file = Jfr.stopRecording();
+        if (file == null) { ctx.status(404).json("not_recording"); return; }
+        ctx.contentType("application/octet-stream");
+        ctx.header("Content-Disposition", "attachment; filename=\"askhub.jfr\"");
+        try {
+            java.nio.file.Files.copy(file, ctx.res.getOutputStream());
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    };
+
+    // Streams a zip of NDJSON files straight to the response; nothing is buffered per table.
+    public static Handler export = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        String tablesParam = ctx.queryParam("tables");
+        List<String> tables = tablesParam != null ? Arrays.asList(tablesParam.split(",")) : DataExporter.TABLES;
+        DataExporter exporter;
+        try {
+            exporter = new DataExporter(tables, false);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json("unknown_table");
+            return;
+        }
+        ctx.res.setContentType("application/zip");
+        ctx.header("Content-Disposition", "attachment; filename=\"askhub-export.zip\"");
+        try {
+            exporter.writeZip(ctx.res.getOutputStream());
+        } catch (Exception e) {
+            ApiServer.streamFailed(ctx, "AdminApi.export", e);
+        }
+    };
+}
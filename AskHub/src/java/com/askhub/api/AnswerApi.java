@@ -1,5 +1,6 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.AnswerDAO;
 import com.askhub.dao.QuestionDAO;
 import com.askhub.models.Answer;
@@ -22,9 +23,9 @@ public class AnswerApi {
     }
 
     public static Handler createAnswer = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         int questionId = Integer.parseInt(ctx.pathParam("id"));
         Answer input = ctx.bodyAsClass(Answer.class);
         if (input.getContent() == null || input.getContent().trim().isEmpty()) {
@@ -45,10 +46,10 @@ public class AnswerApi {
     };
 
     public static Handler updateAnswer = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userHeader != null ? Integer.parseInt(userHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Answer existing = answerDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
@@ -60,10 +61,10 @@ public class AnswerApi {
     };
 
     public static Handler deleteAnswer = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userHeader != null ? Integer.parseInt(userHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Answer existing = answerDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
@@ -73,10 +74,10 @@ public class AnswerApi {
     };
 
     public static Handler acceptAnswer = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userHeader != null ? Integer.parseInt(userHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Answer answer = answerDAO.findById(id);
         if (answer == null) { ctx.status(404).json("not_found"); return; }
@@ -1,23 +1,90 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
+import com.askhub.dao.LastLoginWriter;
+import com.askhub.dao.OrphanReaper;
+import com.askhub.dao.PurgeWorker;
+import com.askhub.dao.UserAvailability;
+import com.askhub.logging.AppLog;
+import com.askhub.metrics.Metrics;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.resilience.RequestDeadlines;
+import com.askhub.resilience.Bulkheads;
+import com.askhub.resilience.ConnectionLimiter;
+import com.askhub.resilience.RateLimiter;
+import com.askhub.tracing.Tracer;
+import com.askhub.utils.DatabaseConfig;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.Request;
+
+import java.util.concurrent.Executor;
 
 public class ApiServer {
+    private static volatile Executor requestExecutor = Runnable::run;
     private Javalin app;
 
+    // -Daskhub.api.threads=virtual runs handlers on virtual threads (Java 21+); default is Jetty's pool
     public void start(int port) {
+        start(port, "virtual".equalsIgnoreCase(System.getProperty("askhub.api.threads", "platform")));
+    }
+
+    public void start(int port, boolean virtualThreads) {
+        if (virtualThreads && !VirtualThreadPool.isSupported()) {
+            AppLog.warn("ApiServer.start", "virtual threads need Java 21+, running on " + System.getProperty("java.version")
+                    + "; using platform threads");
+            virtualThreads = false;
+        }
+        if (virtualThreads) {
+            // Jetty's 200 threads no longer cap how many requests hit the database at once
+            if (DatabaseConfig.getConnectionLimiter() == null) {
+                DatabaseConfig.setMaxConcurrentConnections(Integer.getInteger("askhub.db.maxConcurrent", 64));
+            }
+            Jfr.registerQueue("db-connections", () -> {
+                ConnectionLimiter limiter = DatabaseConfig.getConnectionLimiter();
+                return limiter == null ? 0 : limiter.getWaiting();
+            });
+        }
+        boolean useVirtualThreads = virtualThreads;
         app = Javalin.create(config -> {
             config.defaultContentType = "application/json";
+            if (useVirtualThreads) config.server(VirtualThreadPool::newServer);
+            // Per-route deadline around every handler, enforced down to each JDBC statement;
+            // inside it, admission through the route class's bulkhead, so queueing counts against the deadline.
+            // Outermost, the tracer lets go of the root span of handlers that finish asynchronously
+            config.accessManager((handler, ctx, roles) -> Tracer.getInstance().manage(
+                    c -> RequestDeadlines.getInstance().manage(
+                            c2 -> Bulkheads.getInstance().manage(handler, c2, roles), c, roles), ctx, roles));
         }).start(port);
+        Executor jetty = app.jettyServer().server().getThreadPool();
+        requestExecutor = task -> jetty.execute(Tracer.getInstance().wrap(task));
 
-        // Enable CORS for Flutter web
+        // Enable CORS for Flutter web; first, so 401/429 from the hooks below stay readable
         app.before(ctx -> {
             ctx.header("Access-Control-Allow-Origin", "*");
             ctx.header("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-            ctx.header("Access-Control-Allow-Headers", "Content-Type, X-User-Id, X-Admin");
+            ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization, X-User-Id, X-Admin, traceparent");
+            ctx.header("Access-Control-Expose-Headers", "X-Has-More, X-Next-After-Id, X-Trace-Id, traceparent, Warning, Age, Retry-After");
             ctx.header("Access-Control-Max-Age", "3600");
         });
 
+        // 504 for requests cut short by their deadline; before Metrics so the status is counted
+        RequestDeadlines.getInstance().install(app);
+        // Per-route counters and latencies, scraped from /metrics
+        Metrics.getInstance().install(app);
+        // Root span per request, trace id returned in X-Trace-Id / traceparent
+        Tracer.getInstance().install(app);
+        // Caller identity from the signed session token, no database lookup
+        AuthFilter.getInstance().install(app);
+        // Per-user and per-IP token buckets on the write endpoints, 429 when empty
+        RateLimiter.getInstance().install(app);
+
+        // Unhandled handler failures: one structured log line, counted per route
+        app.exception(Exception.class, (e, ctx) -> {
+            AppLog.error(ctx.method() + " " + Metrics.routeOf(ctx), e);
+            ctx.status(500).json("internal_error");
+        });
+
         // Handle OPTIONS preflight requests
         app.options("/*", ctx -> {
             ctx.status(200);
@@ -31,9 +98,41 @@ public class ApiServer {
         CommentApi.registerRoutes(app);
         VoteApi.registerRoutes(app);
         NotificationApi.registerRoutes(app);
+        AdminApi.registerRoutes(app);
+
+        // Background cleanup of comments/votes/notifications left behind by deletes
+        OrphanReaper.getInstance().start();
+        // Physical removal of soft-deleted questions/answers, off-peak only
+        PurgeWorker.getInstance().start();
+        // Batched users.last_login updates behind /api/login
+        LastLoginWriter.getInstance().start();
+        // Username/email filters behind /api/users/availability, built in the background
+        UserAvailability.getInstance().start();
+    }
+
+    // The server's request threads, carrying the caller's trace span; async handlers finish
+    // their responses here, so slow clients never hold a DaoExecutor thread
+    static Executor requestExecutor() {
+        return requestExecutor;
+    }
+
+    // For handlers that stream into ctx.res. Until something was sent the failure is rethrown and
+    // answered 500 like any other; after that a 200 is on the wire, so the connection is aborted
+    // without the final chunk and the client sees a truncated transfer, not a complete bad body.
+    static void streamFailed(Context ctx, String source, Exception e) throws Exception {
+        if (!ctx.res.isCommitted()) {
+            ctx.res.resetBuffer();
+            ctx.res.setHeader("Content-Disposition", null);
+            throw e;
+        }
+        AppLog.error(source, e);
+        Request.getBaseRequest(ctx.req).getHttpChannel().abort(e);
     }
 
     public void stop() {
+        LastLoginWriter.getInstance().stop();
+        PurgeWorker.getInstance().stop();
+        OrphanReaper.getInstance().stop();
         if (app != null) app.stop();
     }
 
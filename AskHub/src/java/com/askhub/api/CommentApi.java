@@ -1,5 +1,6 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.CommentDAO;
 import com.askhub.models.Comment;
 import io.javalin.Javalin;
@@ -18,9 +19,9 @@ public class CommentApi {
     }
 
     public static Handler createComment = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         Comment input = ctx.bodyAsClass(Comment.class);
         if (input.getTargetType() == null || input.getContent() == null) { ctx.status(400).json("target_and_content_required"); return; }
         input.setUserId(userId);
@@ -32,15 +33,23 @@ public class CommentApi {
         String targetType = ctx.queryParam("targetType");
         Integer targetId = ctx.queryParamAsClass("targetId", Integer.class).getOrDefault(null);
         if (targetType == null || targetId == null) { ctx.status(400).json("targetType_and_targetId_required"); return; }
-        List<Comment> comments = commentDAO.getCommentsByTarget(targetType, targetId);
+        int afterId = ctx.queryParamAsClass("afterId", Integer.class).getOrDefault(0);
+        int limit = ctx.queryParamAsClass("limit", Integer.class).getOrDefault(CommentDAO.DEFAULT_PAGE_SIZE);
+        limit = Math.max(1, Math.min(limit, CommentDAO.MAX_PAGE_SIZE));
+        // fetch one extra row to know whether a "load more" page exists
+        List<Comment> comments = commentDAO.getCommentsByTarget(targetType, targetId, afterId, limit + 1);
+        boolean hasMore = comments.size() > limit;
+        if (hasMore) comments = comments.subList(0, limit);
+        ctx.header("X-Has-More", String.valueOf(hasMore));
+        if (!comments.isEmpty()) ctx.header("X-Next-After-Id", String.valueOf(comments.get(comments.size() - 1).getId()));
         ctx.json(comments);
     };
 
     public static Handler updateComment = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userHeader != null ? Integer.parseInt(userHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Comment existing = commentDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
@@ -52,10 +61,10 @@ public class CommentApi {
     };
 
     public static Handler deleteComment = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userHeader != null ? Integer.parseInt(userHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Comment existing = commentDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
@@ -1,11 +1,13 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.NotificationDAO;
 import com.askhub.models.Notification;
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class NotificationApi {
     private static final NotificationDAO notificationDAO = new NotificationDAO();
@@ -18,19 +20,23 @@ public class NotificationApi {
     }
 
     public static Handler listNotifications = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         int limit = ctx.queryParamAsClass("limit", Integer.class).getOrDefault(50);
-        List<Notification> notifs = notificationDAO.getNotificationsByUser(userId, limit);
-        int unread = notificationDAO.getUnreadCount(userId);
-        ctx.json(new Object(){ public java.util.List<Notification> notifications = notifs; public int unreadCount = unread; });
+        // list and unread count are independent queries, run in parallel on the DAO pool
+        CompletableFuture<List<Notification>> notifs = notificationDAO.getNotificationsByUserAsync(userId, limit);
+        CompletableFuture<Integer> unread = notificationDAO.getUnreadCountAsync(userId);
+        ctx.future(CompletableFuture.allOf(notifs, unread).thenRunAsync(() -> ctx.json(new Object() {
+            public List<Notification> notifications = notifs.join();
+            public int unreadCount = unread.join();
+        }), ApiServer.requestExecutor()));
     };
 
     public static Handler markAsRead = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         int id = Integer.parseInt(ctx.pathParam("id"));
         // ensure notification belongs to user by fetching list (simple check)
         boolean ok = notificationDAO.markAsRead(id);
@@ -38,17 +44,17 @@ public class NotificationApi {
     };
 
     public static Handler markAllAsRead = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         boolean ok = notificationDAO.markAllAsRead(userId);
         if (ok) ctx.status(200).json("ok"); else ctx.status(500).json("mark_failed");
     };
 
     public static Handler deleteNotification = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         int id = Integer.parseInt(ctx.pathParam("id"));
         boolean ok = notificationDAO.deleteNotification(id, userId);
         if (ok) ctx.status(204); else ctx.status(500).json("delete_failed");
@@ -1,22 +1,31 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.AnswerDAO;
 import com.askhub.dao.CommentDAO;
 import com.askhub.dao.QuestionDAO;
 import com.askhub.models.Answer;
 import com.askhub.models.Comment;
 import com.askhub.models.Question;
+import com.askhub.resilience.StaleCache;
+import com.askhub.utils.DatabaseConfig;
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class QuestionApi {
     private static final QuestionDAO questionDAO = new QuestionDAO();
     private static final AnswerDAO answerDAO = new AnswerDAO();
     private static final CommentDAO commentDAO = new CommentDAO();
+    // Last good responses, served marked stale while the database is unavailable
+    private static final StaleCache<List<Question>> listCache =
+            new StaleCache<>("questions.list", 2000, DatabaseConfig.getCircuitBreaker());
+    private static final StaleCache<Map<String, Object>> questionCache =
+            new StaleCache<>("questions.detail", 10000, DatabaseConfig.getCircuitBreaker());
 
     public static void registerRoutes(Javalin app) {
         app.post("/api/questions", createQuestion);
@@ -28,9 +37,9 @@ public class QuestionApi {
     }
 
     public static Handler createQuestion = ctx -> {
-        String userIdHeader = ctx.header("X-User-Id");
-        if (userIdHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userIdHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         Question input = ctx.bodyAsClass(Question.class);
         if (input.getTopicId() == 0 || input.getTitle() == null || input.getContent() == null) {
             ctx.status(400).json("topic_title_content_required");
@@ -47,69 +56,93 @@ public class QuestionApi {
         Integer topicId = ctx.queryParamAsClass("topicId", Integer.class).getOrDefault(null);
         int page = ctx.queryParamAsClass("page", Integer.class).getOrDefault(1);
         int pageSize = ctx.queryParamAsClass("pageSize", Integer.class).getOrDefault(20);
-        if (search != null && !search.isEmpty()) {
-            ctx.json(questionDAO.searchQuestions(search, page, pageSize));
-            return;
-        }
-        if (topicId != null) {
-            ctx.json(questionDAO.getQuestionsByTopic(topicId, page, pageSize));
-            return;
-        }
-        ctx.json(questionDAO.getAllQuestions(page, pageSize));
+        String key = search + "|" + topicId + "|" + page + "|" + pageSize;
+        // like getQuestion: the query runs on the DAO pool, the response is written from a request thread
+        ctx.future(listCache.getAsync(ctx, key, () -> {
+            if (search != null && !search.isEmpty()) {
+                return questionDAO.searchQuestionsAsync(search, page, pageSize);
+            }
+            if (topicId != null) {
+                return questionDAO.getQuestionsByTopicAsync(topicId, page, pageSize);
+            }
+            return questionDAO.getAllQuestionsAsync(page, pageSize);
+        }).thenAcceptAsync(ctx::json, ApiServer.requestExecutor()));
     };
 
     public static Handler getQuestion = ctx -> {
         int id = Integer.parseInt(ctx.pathParam("id"));
-        Question q = questionDAO.findById(id);
-        if (q == null) { ctx.status(404).json("not_found"); return; }
-        // increment view count
-        questionDAO.incrementViewCount(id);
-        // get answers and comments
-        List<Answer> answers = answerDAO.getAnswersByQuestion(id);
-        List<Comment> comments = commentDAO.getCommentsByTarget("QUESTION", id);
-        Map<String, Object> result = new HashMap<>();
-        result.put("question", q);
-        result.put("answers", answers);
-        result.put("comments", comments);
-        ctx.json(result);
+        // the request thread is released while the page's queries run, and the response is
+        // written from a request thread again rather than the DAO thread that finished last
+        ctx.future(questionCache.getAsync(ctx, String.valueOf(id), () -> loadQuestion(id)).thenAcceptAsync(result -> {
+            if (result == null) { ctx.status(404).json("not_found"); return; }
+            // increment view count, not waited for
+            if (!StaleCache.isStale(ctx)) questionDAO.incrementViewCountAsync(id);
+            ctx.json(result);
+        }, ApiServer.requestExecutor()));
     };
 
+    // Question, answers and comments are independent queries, so they run in parallel
+    private static CompletableFuture<Map<String, Object>> loadQuestion(int id) {
+        CompletableFuture<Question> question = questionDAO.findByIdAsync(id);
+        CompletableFuture<List<Answer>> answers = answerDAO.getAnswersByQuestionAsync(id);
+        // only the first page of question comments; the rest come from /api/comments?afterId=
+        CompletableFuture<List<Comment>> comments =
+                commentDAO.getCommentsByTargetAsync("QUESTION", id, 0, CommentDAO.DEFAULT_PAGE_SIZE);
+        return CompletableFuture.allOf(question, answers, comments).thenApply(done -> {
+            Question q = question.join();
+            if (q == null) return null;
+            Map<String, Object> result = new HashMap<>();
+            result.put("question", q);
+            result.put("answers", answers.join());
+            result.put("comments", comments.join());
+            result.put("commentsHasMore", q.getCommentCount() > comments.join().size());
+            return result;
+        });
+    }
+
     public static Handler updateQuestion = ctx -> {
-        String userIdHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userIdHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userIdHeader != null ? Integer.parseInt(userIdHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Question existing = questionDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
         if (!isAdmin && existing.getUserId() != userId) { ctx.status(403).json("forbidden"); return; }
         Question input = ctx.bodyAsClass(Question.class);
-        existing.setTitle(input.getTitle() != null ? input.getTitle() : existing.getTitle());
-        existing.setContent(input.getContent() != null ? input.getContent() : existing.getContent());
-        boolean ok = questionDAO.updateQuestion(existing);
-        if (ok) ctx.json(existing);
+        // findById results may be shared with concurrent readers, so edit a separate object
+        Question update = new Question();
+        update.setId(id);
+        update.setTitle(input.getTitle() != null ? input.getTitle() : existing.getTitle());
+        update.setContent(input.getContent() != null ? input.getContent() : existing.getContent());
+        boolean ok = questionDAO.updateQuestion(update);
+        if (ok) ctx.json(questionDAO.findById(id));
         else ctx.status(500).json("update_failed");
     };
 
     public static Handler deleteQuestion = ctx -> {
-        String userIdHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userIdHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userIdHeader != null ? Integer.parseInt(userIdHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Question existing = questionDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
         if (!isAdmin && existing.getUserId() != userId) { ctx.status(403).json("forbidden"); return; }
         boolean ok = questionDAO.deleteQuestion(id);
-        if (ok) ctx.status(204);
-        else ctx.status(500).json("delete_failed");
+        if (ok) {
+            // so a database outage cannot bring the question back as a stale response
+            questionCache.remove(String.valueOf(id));
+            listCache.clear();
+            ctx.status(204);
+        } else ctx.status(500).json("delete_failed");
     };
 
     public static Handler changeStatus = ctx -> {
-        String userIdHeader = ctx.header("X-User-Id");
-        boolean isAdmin = "true".equalsIgnoreCase(ctx.header("X-Admin"));
-        if (userIdHeader == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
-        int userId = userIdHeader != null ? Integer.parseInt(userIdHeader) : -1;
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser != null ? sessionUser : -1;
         int id = Integer.parseInt(ctx.pathParam("id"));
         Question existing = questionDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
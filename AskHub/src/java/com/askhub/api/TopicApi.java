@@ -1,9 +1,12 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.QuestionDAO;
 import com.askhub.dao.TopicDAO;
 import com.askhub.models.Question;
 import com.askhub.models.Topic;
+import com.askhub.resilience.StaleCache;
+import com.askhub.utils.DatabaseConfig;
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
 
@@ -12,6 +15,9 @@ import java.util.List;
 public class TopicApi {
     private static final TopicDAO topicDAO = new TopicDAO();
     private static final QuestionDAO questionDAO = new QuestionDAO();
+    // Last good topic list, served marked stale while the database is unavailable
+    private static final StaleCache<List<Topic>> topicsCache =
+            new StaleCache<>("topics.list", 1, DatabaseConfig.getCircuitBreaker());
 
     public static void registerRoutes(Javalin app) {
         app.get("/api/topics", listTopics);
@@ -22,7 +28,7 @@ public class TopicApi {
     }
 
     public static Handler listTopics = ctx -> {
-        ctx.json(topicDAO.getAllTopics());
+        ctx.json(topicsCache.get(ctx, "all", topicDAO::getAllTopics));
     };
 
     public static Handler getTopic = ctx -> {
@@ -42,13 +48,8 @@ public class TopicApi {
         });
     };
 
-    private static boolean isAdmin(io.javalin.http.Context ctx) {
-        String adminHeader = ctx.header("X-Admin");
-        return adminHeader != null && ("true".equalsIgnoreCase(adminHeader) || "1".equals(adminHeader));
-    }
-
     public static Handler createTopic = ctx -> {
-        if (!isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
         Topic input = ctx.bodyAsClass(Topic.class);
         if (input.getName() == null || input.getSlug() == null) {
             ctx.status(400).json("name_and_slug_required");
@@ -62,7 +63,7 @@ public class TopicApi {
     };
 
     public static Handler updateTopic = ctx -> {
-        if (!isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
         int id = Integer.parseInt(ctx.pathParam("id"));
         Topic existing = topicDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
@@ -76,7 +77,7 @@ public class TopicApi {
     };
 
     public static Handler deleteTopic = ctx -> {
-        if (!isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
         int id = Integer.parseInt(ctx.pathParam("id"));
         Topic existing = topicDAO.findById(id);
         if (existing == null) { ctx.status(404).json("not_found"); return; }
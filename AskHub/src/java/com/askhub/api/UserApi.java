@@ -1,16 +1,34 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
+import com.askhub.auth.PasswordHasher;
+import com.askhub.auth.SessionTokens;
+import com.askhub.dao.LastLoginWriter;
+import com.askhub.dao.UserAvailability;
 import com.askhub.dao.UserDAO;
 import com.askhub.models.User;
+import com.askhub.utils.PasswordUtil;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
+import io.javalin.plugin.json.JavalinJackson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class UserApi {
     private static final UserDAO userDAO = new UserDAO();
+    private static final ObjectMapper LIST_MAPPER = JavalinJackson.Companion.defaultMapper();
 
     public static void registerRoutes(Javalin app) {
         app.post("/api/register", registerHandler);
         app.post("/api/login", loginHandler);
+        // before /api/users/{id}, which would otherwise take "availability" for an id
+        app.get("/api/users/availability", availabilityHandler);
         app.get("/api/users/{id}", getUserHandler);
         app.put("/api/users/{id}", updateUserHandler);
         app.get("/api/users", listUsersHandler);
@@ -23,22 +41,27 @@ public class UserApi {
             ctx.status(400).json("username, email, password are required");
             return;
         }
-        if (userDAO.findByUsername(input.getUsername()) != null) {
-            ctx.status(409).json("username_exists");
-            return;
-        }
-        if (userDAO.findByEmail(input.getEmail()) != null) {
-            ctx.status(409).json("email_exists");
-            return;
-        }
         User newUser = new User(input.getUsername(), input.getEmail(), input.getPassword(), input.getFullName());
-        boolean ok = userDAO.createUser(newUser);
-        if (ok) {
-            newUser.setPassword(null);
-            ctx.status(201).json(newUser);
-        } else {
-            ctx.status(500).json("create_failed");
-        }
+        // the slow hash runs on PasswordHasher's pool, the insert on the DAO pool; a taken
+        // username or email is caught by its UNIQUE constraint rather than looked up first
+        ctx.future(PasswordHasher.getInstance().hash(ctx, input.getPassword())
+                .thenCompose(hash -> userDAO.insertUserAsync(newUser, hash))
+                .thenAccept(result -> {
+                    switch (result) {
+                        case CREATED:
+                            newUser.setPassword(null);
+                            ctx.status(201).json(newUser);
+                            break;
+                        case USERNAME_EXISTS:
+                            ctx.status(409).json("username_exists");
+                            break;
+                        case EMAIL_EXISTS:
+                            ctx.status(409).json("email_exists");
+                            break;
+                        default:
+                            ctx.status(500).json("create_failed");
+                    }
+                }));
     };
 
     public static Handler loginHandler = ctx -> {
@@ -48,17 +71,41 @@ public class UserApi {
             return;
         }
         User user = userDAO.findByUsername(req.username);
+        PasswordHasher hasher = PasswordHasher.getInstance();
         if (user == null) {
-            ctx.status(401).json("invalid_credentials");
+            ctx.future(hasher.verifyUnknown(ctx, req.password).thenAccept(ok -> ctx.status(401).json("invalid_credentials")));
             return;
         }
-        user = userDAO.authenticate(req.username, req.password);
-        if (user != null) {
+        String storedHash = user.getPassword();
+        ctx.future(hasher.verify(ctx, req.password, storedHash).thenAccept(ok -> {
+            if (!ok) {
+                ctx.status(401).json("invalid_credentials");
+                return;
+            }
+            // legacy or cheaper hash formats are upgraded while the plaintext is at hand
+            if (PasswordUtil.needsRehash(storedHash)) {
+                hasher.rehash(req.password, hash -> userDAO.updatePassword(user.getId(), storedHash, hash));
+            }
+            LastLoginWriter.getInstance().record(user.getId());
             user.setPassword(null);
-            ctx.json(user);
-        } else {
-            ctx.status(401).json("invalid_credentials");
+            ctx.json(new LoginResponse(user, SessionTokens.getInstance().issue(user.getId(), user.isAdmin())));
+        }));
+    };
+
+    // Live "already taken?" check for registration forms, e.g. ?username=bob&email=b@x.com;
+    // names never registered are answered from memory, see UserAvailability
+    public static Handler availabilityHandler = ctx -> {
+        String username = ctx.queryParam("username");
+        String email = ctx.queryParam("email");
+        if (username == null && email == null) {
+            ctx.status(400).json("username_or_email_required");
+            return;
         }
+        UserAvailability availability = UserAvailability.getInstance();
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (username != null) result.put("usernameAvailable", availability.isUsernameAvailable(username.trim()));
+        if (email != null) result.put("emailAvailable", availability.isEmailAvailable(email.trim()));
+        ctx.json(result);
     };
 
     public static Handler getUserHandler = ctx -> {
@@ -73,7 +120,11 @@ public class UserApi {
     };
 
     public static Handler updateUserHandler = ctx -> {
+        Integer sessionUser = AuthFilter.userId(ctx);
+        boolean isAdmin = AuthFilter.isAdmin(ctx);
+        if (sessionUser == null && !isAdmin) { ctx.status(401).json("user_required"); return; }
         int id = Integer.parseInt(ctx.pathParam("id"));
+        if (!isAdmin && sessionUser != id) { ctx.status(403).json("forbidden"); return; }
         User existing = userDAO.findById(id);
         if (existing == null) {
             ctx.status(404).json("not_found");
@@ -93,15 +144,39 @@ public class UserApi {
         }
     };
 
+    // Streams the JSON array user by user instead of materializing the whole table
     public static Handler listUsersHandler = ctx -> {
-        ctx.json(userDAO.getAllUsers().stream().peek(u -> u.setPassword(null)).toArray());
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
+        ctx.res.setContentType("application/json");
+        JsonGenerator json = LIST_MAPPER.getFactory().createGenerator(ctx.res.getOutputStream());
+        try {
+            json.writeStartArray();
+            userDAO.forEachUser(u -> {
+                u.setPassword(null);
+                try {
+                    json.writeObject(u);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        } catch (Exception e) {
+            // not closed: closing would end the response as if the array were complete
+            ApiServer.streamFailed(ctx, "UserApi.listUsers", e);
+            return;
+        }
+        json.close();
     };
 
     public static Handler deactivateUserHandler = ctx -> {
+        if (!AuthFilter.isAdmin(ctx)) { ctx.status(403).json("admin_required"); return; }
         int id = Integer.parseInt(ctx.pathParam("id"));
         boolean ok = userDAO.deactivateUser(id);
-        if (ok) ctx.status(204);
-        else ctx.status(500).json("deactivate_failed");
+        if (ok) {
+            // sessions are verified without the database, so the user's live tokens must be revoked here
+            SessionTokens.getInstance().revoke(id);
+            ctx.status(204);
+        } else ctx.status(500).json("deactivate_failed");
     };
 
     // Simple DTO for login
@@ -109,4 +184,16 @@ public class UserApi {
         public String username;
         public String password;
     }
+
+    // The user's fields plus the session token to send as "Authorization: Bearer <token>"
+    public static class LoginResponse {
+        @JsonUnwrapped
+        public final User user;
+        public final String token;
+
+        LoginResponse(User user, String token) {
+            this.user = user;
+            this.token = token;
+        }
+    }
 }
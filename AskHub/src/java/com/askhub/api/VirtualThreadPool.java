@@ -0,0 +1,77 @@
+package com.askhub.api;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+/**
+ * Jetty thread pool that runs request handling on virtual threads, one per
+ * task, so a request blocked on a MySQL socket read no longer holds one of a
+ * fixed number of platform threads. Acceptors and selectors, started with the
+ * server and running for its lifetime, keep the platform threads of a small
+ * QueuedThreadPool. Needs Java 21; the JDK API is looked up reflectively so
+ * the rest of the tree still builds for Java 8.
+ * Nothing here bounds concurrency: DatabaseConfig's connection limit is what
+ * keeps the database from seeing every waiting request at once.
+ */
+class VirtualThreadPool extends QueuedThreadPool {
+    private ExecutorService handlers;
+    // set once the server has started: from then on every job is request work
+    private volatile boolean handOff;
+    private VirtualThreadPool() {
+        super(16, 4);
+        setName("askhub-jetty");
+        // Without reserved threads a selector never runs a request itself (handing its
+        // selecting to a spare thread); it passes every request to execute()
+        setReservedThreads(0);
+    }
+    static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+    static Server newServer() {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        Server server = new Server(pool);
+        server.addLifeCycleListener(new LifeCycle.Listener() {
+            @Override
+            public void lifeCycleStarted(LifeCycle event) {
+                pool.handOff = true;
+            }
+        });
+        return server;
+    }
+    @Override
+    protected void doStart() throws Exception {
+        // Thread.ofVirtual().name("askhub-vt-", 0).factory()
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+        builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "askhub-vt-", 0L);
+        ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        handlers = (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        super.doStart();
+    }
+    @Override
+    protected void doStop() throws Exception {
+        handOff = false;
+        handlers.shutdown();
+        if (!handlers.awaitTermination(30, TimeUnit.SECONDS)) handlers.shutdownNow();
+        super.doStop();
+    }
+    @Override
+    public void execute(Runnable job) {
+        if (handOff) handlers.execute(job);
+        else super.execute(job);
+    }
+    // Requests do not wait for these threads, so Jetty never needs to economise on them
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
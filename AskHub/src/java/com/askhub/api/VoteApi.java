@@ -1,5 +1,6 @@
 package com.askhub.api;
 
+import com.askhub.auth.AuthFilter;
 import com.askhub.dao.VoteDAO;
 import com.askhub.models.Vote;
 import io.javalin.Javalin;
@@ -15,9 +16,9 @@ public class VoteApi {
     }
 
     public static Handler createOrToggleVote = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         Vote input = ctx.bodyAsClass(Vote.class);
         if (input.getTargetType() == null || input.getTargetId() == 0 || input.getVoteType() == null) {
             ctx.status(400).json("targetType_targetId_voteType_required");
@@ -37,9 +38,9 @@ public class VoteApi {
         if (targetType == null || targetId == null) { ctx.status(400).json("targetType_and_targetId_required"); return; }
         int count = voteDAO.getVoteCount(targetType, targetId);
         Object resp = new Object(){ public int voteCount = count; };
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader != null) {
-            int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser != null) {
+            int userId = sessionUser;
             Vote v = voteDAO.findVote(userId, targetType, targetId);
             resp = new Object(){ public int voteCount = count; public String myVote = v != null ? v.getVoteType() : null; };
         }
@@ -47,9 +48,9 @@ public class VoteApi {
     };
 
     public static Handler removeVote = ctx -> {
-        String userHeader = ctx.header("X-User-Id");
-        if (userHeader == null) { ctx.status(401).json("user_required"); return; }
-        int userId = Integer.parseInt(userHeader);
+        Integer sessionUser = AuthFilter.userId(ctx);
+        if (sessionUser == null) { ctx.status(401).json("user_required"); return; }
+        int userId = sessionUser;
         String targetType = ctx.queryParam("targetType");
         Integer targetId = ctx.queryParamAsClass("targetId", Integer.class).getOrDefault(null);
         if (targetType == null || targetId == null) { ctx.status(400).json("targetType_and_targetId_required"); return; }
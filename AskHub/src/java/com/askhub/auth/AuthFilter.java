@@ -0,0 +1,63 @@
+package com.askhub.auth;
+import com.askhub.dao.UserDAO;
+import com.askhub.logging.AppLog;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.UnauthorizedResponse;
+/**
+ * Resolves the caller of every request from its "Authorization: Bearer"
+ * session token, in a before hook, without touching the database. Handlers
+ * read the result through userId(ctx) and isAdmin(ctx); a request without a
+ * token is anonymous and one with a bad token is refused with 401.
+ *
+ * -Daskhub.auth.legacyHeaders=true also accepts the old unsigned X-User-Id
+ * and X-Admin headers from requests without a token, for tools that predate
+ * tokens. It trusts the client completely, so keep it off in production.
+ */
+public class AuthFilter {
+    private static final String SESSION = "auth.session";
+    private static final boolean LEGACY_HEADERS = Boolean.getBoolean("askhub.auth.legacyHeaders");
+    private static AuthFilter instance;
+    private AuthFilter() {
+    }
+    public static synchronized AuthFilter getInstance() {
+        if (instance == null) {
+            instance = new AuthFilter();
+        }
+        return instance;
+    }
+    public void install(Javalin app) {
+        SessionTokens tokens = SessionTokens.getInstance();
+        if (!tokens.isEphemeralKey()) {
+            // tokens signed before this start may belong to users deactivated meanwhile
+            tokens.revokeAll(new UserDAO().getInactiveUserIds());
+        }
+        if (LEGACY_HEADERS) AppLog.warn("AuthFilter", "accepting unsigned X-User-Id/X-Admin headers");
+        app.before(ctx -> {
+            String authorization = ctx.header("Authorization");
+            if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                SessionTokens.Session session = tokens.verify(authorization.substring(7).trim());
+                if (session == null) throw new UnauthorizedResponse("invalid_token");
+                ctx.attribute(SESSION, session);
+            } else if (LEGACY_HEADERS) {
+                String userHeader = ctx.header("X-User-Id");
+                boolean admin = "true".equalsIgnoreCase(ctx.header("X-Admin")) || "1".equals(ctx.header("X-Admin"));
+                if (userHeader != null || admin) {
+                    ctx.attribute(SESSION, new SessionTokens.Session(userHeader != null ? Integer.parseInt(userHeader) : -1, admin, 0));
+                }
+            }
+        });
+    }
+    public static SessionTokens.Session session(Context ctx) {
+        return ctx.attribute(SESSION);
+    }
+    // The signed-in user's id, or null for an anonymous request
+    public static Integer userId(Context ctx) {
+        SessionTokens.Session session = session(ctx);
+        return session == null || session.getUserId() < 0 ? null : session.getUserId();
+    }
+    public static boolean isAdmin(Context ctx) {
+        SessionTokens.Session session = session(ctx);
+        return session != null && session.isAdmin();
+    }
+}
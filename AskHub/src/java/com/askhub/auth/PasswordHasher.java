@@ -0,0 +1,141 @@
+package com.askhub.auth;
+import com.askhub.metrics.QueryBudget;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.resilience.Deadline;
+import com.askhub.tracing.Span;
+import com.askhub.tracing.Tracer;
+import com.askhub.utils.PasswordUtil;
+import io.javalin.http.Context;
+import io.javalin.http.ServiceUnavailableResponse;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+/**
+ * Runs password hashing for /api/login and /api/register on its own pool,
+ * one thread per core, so a login storm burns at most that much CPU and
+ * never holds Jetty's request threads while it does.
+ *
+ * The queue is bounded: a request that finds it full is answered 503 with
+ * Retry-After at once, and one whose Deadline passes while queued is
+ * answered 503 without being hashed, since its client has given up. Work
+ * runs with the request's trace span, Deadline and SQL budget scope, and
+ * completes its future inside them, so DAO calls chained on it behave as if
+ * made by the request thread.
+ *
+ * -Daskhub.password.threads (default: available processors) and
+ * -Daskhub.password.queue (default 8 per thread) size the pool.
+ */
+public class PasswordHasher {
+    private static PasswordHasher instance;
+    // Hash of a random password, checked against for unknown usernames
+    private static final String DUMMY_HASH = PasswordUtil.hashPassword(UUID.randomUUID().toString());
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+    private PasswordHasher() {
+        int threads = Integer.getInteger("askhub.password.threads", Runtime.getRuntime().availableProcessors());
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("askhub.password.queue", threads * 8)), r -> {
+                    Thread t = new Thread(r, "askhub-password-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        Jfr.registerQueue("password-hashing", () -> executor.getQueue().size());
+    }
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            instance = new PasswordHasher();
+        }
+        return instance;
+    }
+    public CompletableFuture<String> hash(Context ctx, String password) {
+        return submit(ctx, () -> PasswordUtil.hashPassword(password));
+    }
+    public CompletableFuture<Boolean> verify(Context ctx, String password, String hashedPassword) {
+        return submit(ctx, () -> PasswordUtil.verifyPassword(password, hashedPassword));
+    }
+    // For a username that does not exist: the same work as a real check, always false,
+    // so response times do not tell which usernames exist
+    public CompletableFuture<Boolean> verifyUnknown(Context ctx, String password) {
+        return verify(ctx, password, DUMMY_HASH).thenApply(ok -> false);
+    }
+    // Best effort upgrade of a verified password's stored hash; skipped when the pool is busy, the next login retries
+    public void rehash(String password, Consumer<String> store) {
+        try {
+            executor.execute(Tracer.getInstance().wrap(() -> {
+                store.accept(PasswordUtil.hashPassword(password));
+                rehashed.increment();
+            }));
+        } catch (RejectedExecutionException e) {
+            // pool saturated by logins, which matter more
+        }
+    }
+    private <T> CompletableFuture<T> submit(Context ctx, Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Deadline deadline = Deadline.current();
+        QueryBudget.Scope scope = QueryBudget.current();
+        Runnable task = Tracer.getInstance().wrap(() -> {
+            Deadline.attach(deadline);
+            QueryBudget.Scope previousScope = QueryBudget.attach(scope);
+            try {
+                if (deadline != null && deadline.isExpired()) {
+                    expired.increment();
+                    deadline.markTimedOut();
+                    future.completeExceptionally(overloaded(ctx, "deadline_exceeded"));
+                    return;
+                }
+                T value;
+                Span span = Tracer.getInstance().startSpan("password hash");
+                try {
+                    value = work.get();
+                } catch (RuntimeException | Error e) {
+                    span.markError();
+                    span.end();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                span.end();
+                future.complete(value);
+            } finally {
+                QueryBudget.attach(previousScope);
+                Deadline.clear();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw overloaded(ctx, "overloaded");
+        }
+        return future;
+    }
+    private static ServiceUnavailableResponse overloaded(Context ctx, String message) {
+        ctx.header("Retry-After", "1");
+        return new ServiceUnavailableResponse(message);
+    }
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+    public long getRejected() {
+        return rejected.sum();
+    }
+    public long getExpired() {
+        return expired.sum();
+    }
+    public long getRehashed() {
+        return rehashed.sum();
+    }
+}
@@ -0,0 +1,169 @@
+package com.askhub.auth;
+import com.askhub.logging.AppLog;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+/**
+ * Stateless session tokens: user id, role, issue and expiry time, signed with
+ * HMAC-SHA256 and base64url-encoded into one ~40 character string. Checking
+ * one is a MAC over 13 bytes and a map lookup, no database.
+ *
+ * The only server-side state is the revocation set: deactivating a user
+ * revokes every token issued to them until then. An entry is kept for one
+ * TTL, after which those tokens have expired anyway, so the set stays as
+ * small as the number of users deactivated in the last TTL.
+ *
+ * -Daskhub.auth.secret signs tokens and must be shared by every instance;
+ * without it a random key is used and tokens die with the process.
+ * -Daskhub.auth.ttlSec sets the lifetime (default 86400).
+ */
+public class SessionTokens {
+    private static final int PAYLOAD_BYTES = 13;
+    private static final int SIGNATURE_BYTES = 16;
+    private static final int TOKEN_BYTES = PAYLOAD_BYTES + SIGNATURE_BYTES;
+    private static SessionTokens instance;
+    private final SecretKeySpec key;
+    private final boolean ephemeralKey;
+    private final long ttlSeconds = Long.getLong("askhub.auth.ttlSec", TimeUnit.DAYS.toSeconds(1));
+    private final ThreadLocal<Mac> macs;
+    // user id -> epoch second of the revocation; tokens issued up to then are refused
+    private final ConcurrentHashMap<Integer, Long> revoked = new ConcurrentHashMap<>();
+    private final LongAdder rejectedSignature = new LongAdder();
+    private final LongAdder rejectedExpired = new LongAdder();
+    private final LongAdder rejectedRevoked = new LongAdder();
+    private SessionTokens() {
+        String secret = System.getProperty("askhub.auth.secret");
+        byte[] keyBytes;
+        if (secret == null || secret.isEmpty()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            ephemeralKey = true;
+            AppLog.warn("SessionTokens", "no -Daskhub.auth.secret, signing with a random key; sessions end on restart");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            ephemeralKey = false;
+        }
+        key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+    }
+    public static synchronized SessionTokens getInstance() {
+        if (instance == null) {
+            instance = new SessionTokens();
+        }
+        return instance;
+    }
+    public String issue(int userId, boolean admin) {
+        long now = nowSeconds();
+        ByteBuffer buf = ByteBuffer.allocate(TOKEN_BYTES);
+        buf.putInt(userId).put((byte) (admin ? 1 : 0)).putInt((int) now).putInt((int) (now + ttlSeconds));
+        buf.put(sign(buf.array()), 0, SIGNATURE_BYTES);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+    // The session the token stands for, or null if it is malformed, forged, expired or revoked
+    public Session verify(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            rejectedSignature.increment();
+            return null;
+        }
+        if (bytes.length != TOKEN_BYTES || !validSignature(bytes)) {
+            rejectedSignature.increment();
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int userId = buf.getInt();
+        boolean admin = buf.get() == 1;
+        long issuedAt = buf.getInt() & 0xFFFFFFFFL;
+        long expiresAt = buf.getInt() & 0xFFFFFFFFL;
+        if (nowSeconds() >= expiresAt) {
+            rejectedExpired.increment();
+            return null;
+        }
+        Long revokedAt = revoked.get(userId);
+        if (revokedAt != null && issuedAt <= revokedAt) {
+            rejectedRevoked.increment();
+            return null;
+        }
+        return new Session(userId, admin, expiresAt);
+    }
+    public void revoke(int userId) {
+        long now = nowSeconds();
+        revoked.put(userId, now);
+        revoked.values().removeIf(at -> at + ttlSeconds < now);
+    }
+    // Startup seeding: with a shared key, tokens of users deactivated before this process may still be live
+    public void revokeAll(Collection<Integer> userIds) {
+        long now = nowSeconds();
+        for (Integer userId : userIds) revoked.put(userId, now);
+    }
+    public boolean isEphemeralKey() {
+        return ephemeralKey;
+    }
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+    public long getRejectedSignature() {
+        return rejectedSignature.sum();
+    }
+    public long getRejectedExpired() {
+        return rejectedExpired.sum();
+    }
+    public long getRejectedRevoked() {
+        return rejectedRevoked.sum();
+    }
+    private boolean validSignature(byte[] token) {
+        byte[] expected = sign(token);
+        byte[] actual = new byte[SIGNATURE_BYTES];
+        System.arraycopy(token, PAYLOAD_BYTES, actual, 0, SIGNATURE_BYTES);
+        byte[] truncated = new byte[SIGNATURE_BYTES];
+        System.arraycopy(expected, 0, truncated, 0, SIGNATURE_BYTES);
+        return MessageDigest.isEqual(truncated, actual);
+    }
+    private byte[] sign(byte[] token) {
+        Mac mac = macs.get();
+        mac.update(token, 0, PAYLOAD_BYTES);
+        return mac.doFinal();
+    }
+    private static long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+    public static class Session {
+        private final int userId;
+        private final boolean admin;
+        private final long expiresAt;
+        Session(int userId, boolean admin, long expiresAt) {
+            this.userId = userId;
+            this.admin = admin;
+            this.expiresAt = expiresAt;
+        }
+        public int getUserId() {
+            return userId;
+        }
+        public boolean isAdmin() {
+            return admin;
+        }
+        // Epoch seconds
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -1,25 +1,35 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Answer;
 import com.askhub.models.Question;
 import com.askhub.models.User;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 public class AnswerDAO {
+    // Concurrent loads of the same question's answers share one query; see SingleFlight. Writes
+    // invalidate the question id, or everything when only the answer id is at hand
+    static final SingleFlight<Integer, List<Answer>> byQuestionFlight = new SingleFlight<>(
+            "AnswerDAO.getAnswersByQuestion", Collections.emptyList(), SingleFlight.listCopy(Answer::new));
     public boolean createAnswer(Answer answer) {
-        String sql = "INSERT INTO answers (question_id, user_id, content) VALUES (?, ?, ?)";
+        // INSERT ... SELECT so an answer to a soft-deleted question inserts nothing
+        String sql = "INSERT INTO answers (question_id, user_id, content) " +
+                     "SELECT id, ?, ? FROM questions WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, answer.getQuestionId());
-            stmt.setInt(2, answer.getUserId());
-            stmt.setString(3, answer.getContent());
+            stmt.setInt(1, answer.getUserId());
+            stmt.setString(2, answer.getContent());
+            stmt.setInt(3, answer.getQuestionId());
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
                 ResultSet rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
                     answer.setId(rs.getInt(1));
                 }
+                byQuestionFlight.invalidate(answer.getQuestionId());
                 new QuestionDAO().incrementAnswerCount(answer.getQuestionId());
                 // create notification for question owner
                 try {
@@ -35,21 +45,27 @@ public class AnswerDAO {
                         nd.createNotification(n);
                     }
                 } catch (Exception ex) {
-                    ex.printStackTrace();
+                    AppLog.error("AnswerDAO.createAnswer", ex);
                 }
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.createAnswer", e);
         }
         return false;
     }
     public List<Answer> getAnswersByQuestion(int questionId) {
+        return byQuestionFlight.load(questionId, () -> loadAnswersByQuestion(questionId));
+    }
+    public CompletableFuture<List<Answer>> getAnswersByQuestionAsync(int questionId) {
+        return DaoExecutor.supply(() -> getAnswersByQuestion(questionId), Collections.emptyList());
+    }
+    private List<Answer> loadAnswersByQuestion(int questionId) {
         List<Answer> answers = new ArrayList<>();
         String sql = "SELECT a.*, u.username, u.full_name, u.reputation, u.avatar_url " +
                      "FROM answers a " +
                      "JOIN users u ON a.user_id = u.id " +
-                     "WHERE a.question_id = ? " +
+                     "WHERE a.question_id = ? AND a.deleted_at IS NULL " +
                      "ORDER BY a.is_accepted DESC, a.vote_count DESC, a.created_at ASC";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -67,7 +83,7 @@ public class AnswerDAO {
                 answers.add(answer);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.getAnswersByQuestion", e);
         }
         return answers;
     }
@@ -75,7 +91,8 @@ public class AnswerDAO {
         String sql = "SELECT a.*, u.username " +
                      "FROM answers a " +
                      "JOIN users u ON a.user_id = u.id " +
-                     "WHERE a.id = ?";
+                     "JOIN questions q ON a.question_id = q.id " +
+                     "WHERE a.id = ? AND a.deleted_at IS NULL AND q.deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
@@ -84,7 +101,7 @@ public class AnswerDAO {
                 return extractAnswerFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.findById", e);
         }
         return null;
     }
@@ -93,7 +110,8 @@ public class AnswerDAO {
         String sql = "SELECT a.*, u.username " +
                      "FROM answers a " +
                      "JOIN users u ON a.user_id = u.id " +
-                     "WHERE a.user_id = ? " +
+                     "JOIN questions q ON a.question_id = q.id " +
+                     "WHERE a.user_id = ? AND a.deleted_at IS NULL AND q.deleted_at IS NULL " +
                      "ORDER BY a.created_at DESC";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -103,19 +121,20 @@ public class AnswerDAO {
                 answers.add(extractAnswerFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.getAnswersByUser", e);
         }
         return answers;
     }
     public void updateVoteCount(int answerId, int voteChange) {
-        String sql = "UPDATE answers SET vote_count = vote_count + ? WHERE id = ?";
+        String sql = "UPDATE answers SET vote_count = vote_count + ? WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, voteChange);
             stmt.setInt(2, answerId);
             stmt.executeUpdate();
+            byQuestionFlight.invalidateAll();
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.updateVoteCount", e);
         }
     }
     public boolean acceptAnswer(int answerId, int questionId) {
@@ -128,17 +147,27 @@ public class AnswerDAO {
                 stmt.setInt(1, questionId);
                 stmt.executeUpdate();
             }
-            String acceptSql = "UPDATE answers SET is_accepted = TRUE WHERE id = ?";
+            // nothing is accepted when the answer or its question is soft-deleted
+            String acceptSql = "UPDATE answers SET is_accepted = TRUE WHERE id = ? AND question_id = ? AND deleted_at IS NULL";
             try (PreparedStatement stmt = conn.prepareStatement(acceptSql)) {
                 stmt.setInt(1, answerId);
-                stmt.executeUpdate();
+                stmt.setInt(2, questionId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
             }
-            String updateQuestionSql = "UPDATE questions SET status = 'ANSWERED' WHERE id = ?";
+            String updateQuestionSql = "UPDATE questions SET status = 'ANSWERED' WHERE id = ? AND deleted_at IS NULL";
             try (PreparedStatement stmt = conn.prepareStatement(updateQuestionSql)) {
                 stmt.setInt(1, questionId);
-                stmt.executeUpdate();
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
             }
             conn.commit();
+            byQuestionFlight.invalidate(questionId);
+            QuestionDAO.findByIdFlight.invalidate(questionId);
             // notify answer author about acceptance
             try {
                 Answer a = findById(answerId);
@@ -154,7 +183,7 @@ public class AnswerDAO {
                     nd.createNotification(n);
                 }
             } catch (Exception ex) {
-                ex.printStackTrace();
+                AppLog.error("AnswerDAO.acceptAnswer", ex);
             }
             return true;
         } catch (SQLException e) {
@@ -162,48 +191,56 @@ public class AnswerDAO {
                 try {
                     conn.rollback();
                 } catch (SQLException ex) {
-                    ex.printStackTrace();
+                    AppLog.error("AnswerDAO.acceptAnswer", ex);
                 }
             }
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.acceptAnswer", e);
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
                     conn.close();
                 } catch (SQLException e) {
-                    e.printStackTrace();
+                    AppLog.error("AnswerDAO.acceptAnswer", e);
                 }
             }
         }
         return false;
     }
     public boolean updateAnswer(Answer answer) {
-        String sql = "UPDATE answers SET content = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        String sql = "UPDATE answers SET content = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, answer.getContent());
             stmt.setInt(2, answer.getId());
             int rowsAffected = stmt.executeUpdate();
+            byQuestionFlight.invalidateAll();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.updateAnswer", e);
         }
         return false;
     }
+    // Soft delete; PurgeWorker removes the row later.
     public boolean deleteAnswer(int answerId) {
-        String sql = "DELETE FROM answers WHERE id = ?";
+        Answer a = findById(answerId);
+        if (a == null) return false;
+        String sql = "UPDATE answers SET deleted_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, answerId);
             int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            byQuestionFlight.invalidate(a.getQuestionId());
+            if (rowsAffected > 0) {
+                new QuestionDAO().decrementAnswerCount(a.getQuestionId());
+                return true;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("AnswerDAO.deleteAnswer", e);
         }
         return false;
     }
-    private Answer extractAnswerFromResultSet(ResultSet rs) throws SQLException {
+    Answer extractAnswerFromResultSet(ResultSet rs) throws SQLException {
         Answer answer = new Answer();
         answer.setId(rs.getInt("id"));
         answer.setQuestionId(rs.getInt("question_id"));
@@ -211,6 +248,7 @@ public class AnswerDAO {
         answer.setContent(rs.getString("content"));
         answer.setVoteCount(rs.getInt("vote_count"));
         answer.setAccepted(rs.getBoolean("is_accepted"));
+        answer.setCommentCount(rs.getInt("comment_count"));
         answer.setCreatedAt(rs.getTimestamp("created_at"));
         answer.setUpdatedAt(rs.getTimestamp("updated_at"));
         answer.setUsername(rs.getString("username"));
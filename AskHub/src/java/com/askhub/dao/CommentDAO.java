@@ -1,71 +1,105 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Comment;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 public class CommentDAO {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Concurrent loads of the same comment page share one query; see SingleFlight. Writes
+    // invalidate all pages of their target, through the target's scope
+    private static final SingleFlight<String, List<Comment>> byTargetFlight = new SingleFlight<>(
+            "CommentDAO.getCommentsByTarget", Collections.emptyList(), SingleFlight.listCopy(Comment::new));
     public boolean createComment(Comment comment) {
-        String sql = "INSERT INTO comments (user_id, target_type, target_id, content) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, comment.getUserId());
-            stmt.setString(2, comment.getTargetType());
-            stmt.setInt(3, comment.getTargetId());
-            stmt.setString(4, comment.getContent());
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
+        String sql = "INSERT INTO comments (user_id, target_type, target_id, content) " +
+                     "SELECT ?, ?, ?, ? FROM DUAL WHERE " + QuestionDAO.liveTargetCondition(comment.getTargetType());
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, comment.getUserId());
+                stmt.setString(2, comment.getTargetType());
+                stmt.setInt(3, comment.getTargetId());
+                stmt.setString(4, comment.getContent());
+                stmt.setInt(5, comment.getTargetId());
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
                 ResultSet rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
                     comment.setId(rs.getInt(1));
                 }
-                // create notification for target owner
-                try {
-                    int ownerId = -1;
-                    if ("QUESTION".equalsIgnoreCase(comment.getTargetType())) {
-                        com.askhub.models.Question q = new com.askhub.dao.QuestionDAO().findById(comment.getTargetId());
-                        if (q != null) ownerId = q.getUserId();
-                    } else if ("ANSWER".equalsIgnoreCase(comment.getTargetType())) {
-                        com.askhub.models.Answer a = new com.askhub.dao.AnswerDAO().findById(comment.getTargetId());
-                        if (a != null) ownerId = a.getUserId();
-                    }
-                    if (ownerId > 0 && ownerId != comment.getUserId()) {
-                        com.askhub.dao.NotificationDAO nd = new com.askhub.dao.NotificationDAO();
-                        com.askhub.models.Notification n = new com.askhub.models.Notification();
-                        n.setUserId(ownerId);
-                        n.setType("NEW_COMMENT");
-                        n.setContent("New comment on your post.");
-                        n.setReferenceType(comment.getTargetType());
-                        n.setReferenceId(comment.getTargetId());
-                        nd.createNotification(n);
-                    }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-                return true;
             }
+            updateTargetCommentCount(conn, comment.getTargetType(), comment.getTargetId(), 1);
+            conn.commit();
+            invalidate(comment.getTargetType(), comment.getTargetId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            rollbackQuietly(conn);
+            AppLog.error("CommentDAO.createComment", e);
+            return false;
+        } finally {
+            closeQuietly(conn);
         }
-        return false;
+        // create notification for target owner
+        try {
+            int ownerId = -1;
+            if ("QUESTION".equalsIgnoreCase(comment.getTargetType())) {
+                com.askhub.models.Question q = new com.askhub.dao.QuestionDAO().findById(comment.getTargetId());
+                if (q != null) ownerId = q.getUserId();
+            } else if ("ANSWER".equalsIgnoreCase(comment.getTargetType())) {
+                com.askhub.models.Answer a = new com.askhub.dao.AnswerDAO().findById(comment.getTargetId());
+                if (a != null) ownerId = a.getUserId();
+            }
+            if (ownerId > 0 && ownerId != comment.getUserId()) {
+                com.askhub.dao.NotificationDAO nd = new com.askhub.dao.NotificationDAO();
+                com.askhub.models.Notification n = new com.askhub.models.Notification();
+                n.setUserId(ownerId);
+                n.setType("NEW_COMMENT");
+                n.setContent("New comment on your post.");
+                n.setReferenceType(comment.getTargetType());
+                n.setReferenceId(comment.getTargetId());
+                nd.createNotification(n);
+            }
+        } catch (Exception ex) {
+            AppLog.error("CommentDAO.createComment", ex);
+        }
+        return true;
+    }
+    // keyset paging: pass the id of the last comment already shown to load more
+    public List<Comment> getCommentsByTarget(String targetType, int targetId, int afterId, int limit) {
+        String key = targetType + ":" + targetId + ":" + afterId + ":" + limit;
+        return byTargetFlight.load(key, scope(targetType, targetId), () -> loadCommentsByTarget(targetType, targetId, afterId, limit));
     }
-    public List<Comment> getCommentsByTarget(String targetType, int targetId) {
+    public CompletableFuture<List<Comment>> getCommentsByTargetAsync(String targetType, int targetId, int afterId, int limit) {
+        return DaoExecutor.supply(() -> getCommentsByTarget(targetType, targetId, afterId, limit), Collections.emptyList());
+    }
+    private List<Comment> loadCommentsByTarget(String targetType, int targetId, int afterId, int limit) {
         List<Comment> comments = new ArrayList<>();
         String sql = "SELECT c.*, u.username " +
                      "FROM comments c " +
                      "JOIN users u ON c.user_id = u.id " +
-                     "WHERE c.target_type = ? AND c.target_id = ? " +
-                     "ORDER BY c.created_at ASC";
+                     "WHERE c.target_type = ? AND c.target_id = ? AND c.id > ? " +
+                     "ORDER BY c.id ASC " +
+                     "LIMIT ?";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, targetType);
             stmt.setInt(2, targetId);
+            stmt.setInt(3, afterId);
+            stmt.setInt(4, Math.max(1, Math.min(limit, MAX_PAGE_SIZE + 1)));
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 comments.add(extractCommentFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("CommentDAO.getCommentsByTarget", e);
         }
         return comments;
     }
@@ -82,7 +116,7 @@ public class CommentDAO {
                 return extractCommentFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("CommentDAO.findById", e);
         }
         return null;
     }
@@ -93,39 +127,113 @@ public class CommentDAO {
             stmt.setString(1, comment.getContent());
             stmt.setInt(2, comment.getId());
             int rowsAffected = stmt.executeUpdate();
+            byTargetFlight.invalidateAll();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("CommentDAO.updateComment", e);
         }
         return false;
     }
     public boolean deleteComment(int commentId) {
-        String sql = "DELETE FROM comments WHERE id = ?";
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, commentId);
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+        String selectSql = "SELECT target_type, target_id FROM comments WHERE id = ? FOR UPDATE";
+        String deleteSql = "DELETE FROM comments WHERE id = ?";
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+            String targetType;
+            int targetId;
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setInt(1, commentId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    conn.rollback();
+                    return false;
+                }
+                targetType = rs.getString("target_type");
+                targetId = rs.getInt("target_id");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+                stmt.setInt(1, commentId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+            }
+            updateTargetCommentCount(conn, targetType, targetId, -1);
+            conn.commit();
+            invalidate(targetType, targetId);
+            OrphanReaper.getInstance().enqueue("COMMENT", commentId);
+            return true;
         } catch (SQLException e) {
-            e.printStackTrace();
+            rollbackQuietly(conn);
+            AppLog.error("CommentDAO.deleteComment", e);
+        } finally {
+            closeQuietly(conn);
         }
         return false;
     }
     public int getCommentCount(String targetType, int targetId) {
-        String sql = "SELECT COUNT(*) FROM comments WHERE target_type = ? AND target_id = ?";
+        String table = "ANSWER".equalsIgnoreCase(targetType) ? "answers" : "questions";
+        String sql = "SELECT comment_count FROM " + table + " WHERE id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, targetType);
-            stmt.setInt(2, targetId);
+            stmt.setInt(1, targetId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("CommentDAO.getCommentCount", e);
         }
         return 0;
     }
+    // After a committed comment insert or delete: its pages and the target's comment_count
+    private static void invalidate(String targetType, int targetId) {
+        byTargetFlight.invalidate(scope(targetType, targetId));
+        if ("QUESTION".equalsIgnoreCase(targetType)) {
+            QuestionDAO.findByIdFlight.invalidate(targetId);
+        } else if ("ANSWER".equalsIgnoreCase(targetType)) {
+            AnswerDAO.byQuestionFlight.invalidateAll();
+        }
+    }
+    private static String scope(String targetType, int targetId) {
+        return targetType.toUpperCase(Locale.ROOT) + ":" + targetId;
+    }
+    private void updateTargetCommentCount(Connection conn, String targetType, int targetId, int change) throws SQLException {
+        String sql;
+        if ("QUESTION".equalsIgnoreCase(targetType)) {
+            sql = "UPDATE questions SET comment_count = GREATEST(comment_count + ?, 0) WHERE id = ?";
+        } else if ("ANSWER".equalsIgnoreCase(targetType)) {
+            sql = "UPDATE answers SET comment_count = GREATEST(comment_count + ?, 0) WHERE id = ?";
+        } else {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, change);
+            stmt.setInt(2, targetId);
+            stmt.executeUpdate();
+        }
+    }
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                AppLog.error("CommentDAO.rollbackQuietly", ex);
+            }
+        }
+    }
+    private void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException e) {
+                AppLog.error("CommentDAO.closeQuietly", e);
+            }
+        }
+    }
     private Comment extractCommentFromResultSet(ResultSet rs) throws SQLException {
         Comment comment = new Comment();
         comment.setId(rs.getInt("id"));
@@ -0,0 +1,88 @@
+package com.askhub.dao;
+import com.askhub.metrics.QueryBudget;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.resilience.CircuitBreaker;
+import com.askhub.resilience.Deadline;
+import com.askhub.tracing.Tracer;
+import com.askhub.utils.DatabaseConfig;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+/**
+ * Bounded pool behind the CompletableFuture variants of the DAO reads
+ * (findByIdAsync and friends). A query runs with the submitting thread's
+ * trace span, Deadline, SQL budget scope and breaker trouble counter, and
+ * completes its future inside that context, so stages chained on it see the
+ * request as if the query had run inline.
+ *
+ * -Daskhub.dao.asyncThreads (default 16) and -Daskhub.dao.asyncQueue
+ * (default 1000) size the pool. A query that finds the queue full is not run:
+ * its future completes with the DAO's usual failure result and the breaker
+ * counter notes the trouble, so StaleCache treats it like a failed load.
+ */
+public class DaoExecutor {
+    private static final ThreadPoolExecutor EXECUTOR;
+    private static final LongAdder rejected = new LongAdder();
+    static {
+        int threads = Integer.getInteger("askhub.dao.asyncThreads", 16);
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("askhub.dao.asyncQueue", 1000)), r -> {
+                    Thread t = new Thread(r, "askhub-dao-async-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+        Jfr.registerQueue("dao-async", () -> EXECUTOR.getQueue().size());
+    }
+    private DaoExecutor() {
+    }
+    static <T> CompletableFuture<T> supply(Supplier<T> query, T fallback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CircuitBreaker breaker = DatabaseConfig.getCircuitBreaker();
+        AtomicInteger trouble = breaker.troubleCounter();
+        Deadline deadline = Deadline.current();
+        QueryBudget.Scope scope = QueryBudget.current();
+        Runnable task = Tracer.getInstance().wrap(() -> {
+            AtomicInteger previousTrouble = breaker.swapTroubleCounter(trouble);
+            Deadline.attach(deadline);
+            QueryBudget.Scope previousScope = QueryBudget.attach(scope);
+            try {
+                T value;
+                try {
+                    value = query.get();
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                future.complete(value);
+            } finally {
+                QueryBudget.attach(previousScope);
+                Deadline.clear();
+                breaker.swapTroubleCounter(previousTrouble);
+            }
+        });
+        try {
+            EXECUTOR.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            trouble.incrementAndGet();
+            future.complete(fallback);
+        }
+        return future;
+    }
+    public static int getActive() {
+        return EXECUTOR.getActiveCount();
+    }
+    public static int getQueued() {
+        return EXECUTOR.getQueue().size();
+    }
+    public static long getRejected() {
+        return rejected.sum();
+    }
+}
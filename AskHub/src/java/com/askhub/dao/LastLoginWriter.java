@@ -0,0 +1,109 @@
+package com.askhub.dao;
+import com.askhub.logging.AppLog;
+import com.askhub.utils.DatabaseConfig;
+import java.sql.*;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Write-behind for users.last_login, so a login costs its one lookup and no
+ * write. record() notes the time in memory; a background thread writes all
+ * pending logins every -Daskhub.lastLogin.flushMs (default 1000) as JDBC
+ * batches, one row per user however often they logged in meanwhile.
+ *
+ * At most -Daskhub.lastLogin.maxPending (default 10000) users wait; past
+ * that logins are not recorded until the next flush. A failed flush is
+ * retried on the next one. stop() writes what is left; a crash loses at most
+ * one interval of last_login values.
+ */
+public class LastLoginWriter {
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_MILLIS = Long.getLong("askhub.lastLogin.flushMs", 1000);
+    private static final int MAX_PENDING = Integer.getInteger("askhub.lastLogin.maxPending", 10000);
+    private static LastLoginWriter instance;
+    // user id -> login time, epoch millis
+    private final ConcurrentHashMap<Integer, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private LastLoginWriter() {
+    }
+    public static synchronized LastLoginWriter getInstance() {
+        if (instance == null) {
+            instance = new LastLoginWriter();
+        }
+        return instance;
+    }
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "askhub-last-login");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+            flush();
+        }
+    }
+    // Never blocks and never touches the database
+    public void record(int userId) {
+        if (pending.size() >= MAX_PENDING && !pending.containsKey(userId)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.put(userId, System.currentTimeMillis());
+    }
+    synchronized void flush() {
+        if (pending.isEmpty()) return;
+        List<Map.Entry<Integer, Long>> batch = new ArrayList<>();
+        for (Integer userId : pending.keySet()) {
+            Long at = pending.remove(userId);
+            if (at != null) batch.add(new AbstractMap.SimpleImmutableEntry<>(userId, at));
+        }
+        String sql = "UPDATE users SET last_login = ? WHERE id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < batch.size(); i++) {
+                stmt.setTimestamp(1, new Timestamp(batch.get(i).getValue()));
+                stmt.setInt(2, batch.get(i).getKey());
+                stmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == batch.size() - 1) stmt.executeBatch();
+            }
+            written.addAndGet(batch.size());
+        } catch (SQLException e) {
+            errors.incrementAndGet();
+            AppLog.error("LastLoginWriter.flush", e);
+            // retried next time, unless the user has logged in again since
+            for (Map.Entry<Integer, Long> login : batch) pending.putIfAbsent(login.getKey(), login.getValue());
+        }
+    }
+    public int getPending() {
+        return pending.size();
+    }
+    public long getWritten() {
+        return written.get();
+    }
+    public long getDropped() {
+        return dropped.get();
+    }
+    public long getErrors() {
+        return errors.get();
+    }
+}
@@ -1,9 +1,12 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Notification;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 public class NotificationDAO {
     public boolean createNotification(Notification notification) {
         String sql = "INSERT INTO notifications (user_id, type, content, reference_type, reference_id) VALUES (?, ?, ?, ?, ?)";
@@ -27,7 +30,7 @@ public class NotificationDAO {
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.createNotification", e);
         }
         return false;
     }
@@ -43,10 +46,13 @@ public class NotificationDAO {
                 notifications.add(extractNotificationFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.getNotificationsByUser", e);
         }
         return notifications;
     }
+    public CompletableFuture<List<Notification>> getNotificationsByUserAsync(int userId, int limit) {
+        return DaoExecutor.supply(() -> getNotificationsByUser(userId, limit), Collections.emptyList());
+    }
     public int getUnreadCount(int userId) {
         String sql = "SELECT COUNT(*) FROM notifications WHERE user_id = ? AND is_read = FALSE";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -57,10 +63,13 @@ public class NotificationDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.getUnreadCount", e);
         }
         return 0;
     }
+    public CompletableFuture<Integer> getUnreadCountAsync(int userId) {
+        return DaoExecutor.supply(() -> getUnreadCount(userId), 0);
+    }
     public boolean markAsRead(int notificationId) {
         String sql = "UPDATE notifications SET is_read = TRUE WHERE id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -68,7 +77,7 @@ public class NotificationDAO {
             stmt.setInt(1, notificationId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.markAsRead", e);
         }
         return false;
     }
@@ -79,7 +88,7 @@ public class NotificationDAO {
             stmt.setInt(1, userId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.markAllAsRead", e);
         }
         return false;
     }
@@ -91,11 +100,11 @@ public class NotificationDAO {
             stmt.setInt(2, userId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("NotificationDAO.deleteNotification", e);
         }
         return false;
     }
-    private Notification extractNotificationFromResultSet(ResultSet rs) throws SQLException {
+    Notification extractNotificationFromResultSet(ResultSet rs) throws SQLException {
         Notification notification = new Notification();
         notification.setId(rs.getInt("id"));
         notification.setUserId(rs.getInt("user_id"));
@@ -0,0 +1,245 @@
+package com.askhub.dao;
+import com.askhub.logging.AppLog;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.utils.DatabaseConfig;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Background cleanup of comments, votes and notifications whose polymorphic
+ * target (question/answer/comment) no longer exists. Deleted targets are
+ * enqueued for immediate cleanup; a slow primary-key sweep catches the rest.
+ */
+public class OrphanReaper {
+    private static final int BATCH_SIZE = 500;
+    private static final int SWEEP_WINDOW = 5000;
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final long TICK_MILLIS = 1000;
+    // fraction of wall time the reaper may spend in the database
+    private static final double DUTY_CYCLE = 0.2;
+    private static final String[] SWEEP_TABLES = {"comments", "votes", "notifications"};
+    private static OrphanReaper instance;
+    private final BlockingQueue<Target> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<String, Integer> sweepCursors = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> deletedByTable = new LinkedHashMap<>();
+    private final AtomicLong rowsScanned = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong targetsCleaned = new AtomicLong();
+    private final AtomicLong targetsDropped = new AtomicLong();
+    private final AtomicLong sweepsCompleted = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long lastSweepCompletedAt;
+    private int sweepTurn;
+    private ScheduledExecutorService scheduler;
+    private OrphanReaper() {
+        for (String table : SWEEP_TABLES) {
+            sweepCursors.put(table, 0);
+            deletedByTable.put(table, new AtomicLong());
+        }
+    }
+    public static synchronized OrphanReaper getInstance() {
+        if (instance == null) {
+            instance = new OrphanReaper();
+        }
+        return instance;
+    }
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "askhub-orphan-reaper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.schedule(this::tick, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        Jfr.registerQueue("orphan-reaper", pending::size);
+    }
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+    // Called after a question/answer/comment row is removed. Never blocks; if the
+    // queue is full the periodic sweep will pick the orphans up later.
+    public void enqueue(String targetType, int targetId) {
+        if (!pending.offer(new Target(targetType, targetId))) {
+            targetsDropped.incrementAndGet();
+        }
+    }
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", isRunning());
+        stats.put("pendingTargets", pending.size());
+        stats.put("targetsCleaned", targetsCleaned.get());
+        stats.put("targetsDropped", targetsDropped.get());
+        stats.put("rowsScanned", rowsScanned.get());
+        stats.put("batches", batches.get());
+        stats.put("sweepsCompleted", sweepsCompleted.get());
+        stats.put("lastSweepCompletedAt", lastSweepCompletedAt);
+        stats.put("errors", errors.get());
+        Map<String, Long> deleted = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLong> e : deletedByTable.entrySet()) {
+            deleted.put(e.getKey(), e.getValue().get());
+        }
+        stats.put("deleted", deleted);
+        synchronized (sweepCursors) {
+            stats.put("sweepCursors", new LinkedHashMap<>(sweepCursors));
+        }
+        return stats;
+    }
+    private void tick() {
+        long started = System.nanoTime();
+        try {
+            Target target = pending.poll();
+            if (target != null) {
+                cleanTarget(target);
+            } else {
+                sweepNextWindow();
+            }
+        } catch (SQLException e) {
+            errors.incrementAndGet();
+            AppLog.error("OrphanReaper.tick", e);
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            AppLog.error("OrphanReaper.tick", e);
+        }
+        long busyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        // throttle: pause long enough that the reaper stays within its duty cycle
+        long pause = Math.max((long) (busyMillis * (1 - DUTY_CYCLE) / DUTY_CYCLE), pending.isEmpty() ? TICK_MILLIS : 10);
+        ScheduledExecutorService s = scheduler;
+        if (s != null && !s.isShutdown()) {
+            s.schedule(this::tick, pause, TimeUnit.MILLISECONDS);
+        }
+    }
+    private void cleanTarget(Target target) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            if (!"COMMENT".equals(target.type)) {
+                deleteInBatches(conn, "comments",
+                        "DELETE FROM comments WHERE target_type = ? AND target_id = ? LIMIT ?", target);
+                deleteInBatches(conn, "votes",
+                        "DELETE FROM votes WHERE target_type = ? AND target_id = ? LIMIT ?", target);
+            }
+            deleteInBatches(conn, "notifications",
+                    "DELETE FROM notifications WHERE reference_type = ? AND reference_id = ? LIMIT ?", target);
+        }
+        targetsCleaned.incrementAndGet();
+    }
+    private void deleteInBatches(Connection conn, String table, String sql, Target target) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int deleted;
+            do {
+                stmt.setString(1, target.type);
+                stmt.setInt(2, target.id);
+                stmt.setInt(3, BATCH_SIZE);
+                deleted = stmt.executeUpdate();
+                deletedByTable.get(table).addAndGet(deleted);
+                batches.incrementAndGet();
+            } while (deleted == BATCH_SIZE);
+        }
+    }
+    private void sweepNextWindow() throws SQLException {
+        String table = nextSweepTable();
+        int from;
+        synchronized (sweepCursors) {
+            from = sweepCursors.get(table);
+        }
+        int to = from + SWEEP_WINDOW;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            List<Integer> orphanIds = findOrphans(conn, table, from, to);
+            if (!orphanIds.isEmpty()) {
+                deleteByIds(conn, table, orphanIds);
+            }
+            int next = hasRowsAfter(conn, table, to) ? to : 0;
+            synchronized (sweepCursors) {
+                sweepCursors.put(table, next);
+            }
+            if (next == 0 && "notifications".equals(table)) {
+                sweepsCompleted.incrementAndGet();
+                lastSweepCompletedAt = System.currentTimeMillis();
+            }
+        }
+    }
+    private String nextSweepTable() {
+        // advance tables round-robin so one large table does not starve the others
+        sweepTurn = (sweepTurn + 1) % SWEEP_TABLES.length;
+        return SWEEP_TABLES[sweepTurn];
+    }
+    private List<Integer> findOrphans(Connection conn, String table, int from, int to) throws SQLException {
+        String sql;
+        if ("notifications".equals(table)) {
+            // only references of a known target type can dangle; other notifications are left alone
+            sql = "SELECT n.id, CASE WHEN n.reference_id IS NOT NULL " +
+                  "AND n.reference_type IN ('QUESTION', 'ANSWER', 'COMMENT') " +
+                  "AND q.id IS NULL AND a.id IS NULL AND c.id IS NULL THEN 1 ELSE 0 END AS orphan " +
+                  "FROM notifications n " +
+                  "LEFT JOIN questions q ON n.reference_type = 'QUESTION' AND q.id = n.reference_id " +
+                  "LEFT JOIN answers a ON n.reference_type = 'ANSWER' AND a.id = n.reference_id " +
+                  "LEFT JOIN comments c ON n.reference_type = 'COMMENT' AND c.id = n.reference_id " +
+                  "WHERE n.id > ? AND n.id <= ?";
+        } else {
+            sql = "SELECT t.id, CASE WHEN q.id IS NULL AND a.id IS NULL THEN 1 ELSE 0 END AS orphan " +
+                  "FROM " + table + " t " +
+                  "LEFT JOIN questions q ON t.target_type = 'QUESTION' AND q.id = t.target_id " +
+                  "LEFT JOIN answers a ON t.target_type = 'ANSWER' AND a.id = t.target_id " +
+                  "WHERE t.id > ? AND t.id <= ?";
+        }
+        // every row of the window comes back, flagged, so rowsScanned counts what was examined
+        List<Integer> ids = new ArrayList<>();
+        int scanned = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, from);
+            stmt.setInt(2, to);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                scanned++;
+                if (rs.getInt(2) == 1) ids.add(rs.getInt(1));
+            }
+        }
+        rowsScanned.addAndGet(scanned);
+        batches.incrementAndGet();
+        return ids;
+    }
+    private void deleteByIds(Connection conn, String table, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            StringBuilder sql = new StringBuilder("DELETE FROM ").append(table).append(" WHERE id IN (");
+            for (int j = 0; j < chunk.size(); j++) {
+                sql.append(j == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int j = 0; j < chunk.size(); j++) {
+                    stmt.setInt(j + 1, chunk.get(j));
+                }
+                deletedByTable.get(table).addAndGet(stmt.executeUpdate());
+            }
+        }
+    }
+    private boolean hasRowsAfter(Connection conn, String table, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM " + table + " WHERE id > ? LIMIT 1")) {
+            stmt.setInt(1, id);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next();
+        }
+    }
+    private static class Target {
+        final String type;
+        final int id;
+        Target(String type, int id) {
+            this.type = type;
+            this.id = id;
+        }
+    }
+}
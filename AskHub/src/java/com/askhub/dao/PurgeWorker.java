@@ -0,0 +1,186 @@
+package com.askhub.dao;
+import com.askhub.logging.AppLog;
+import com.askhub.utils.DatabaseConfig;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Physically removes soft-deleted questions and answers. Runs only inside the
+ * off-peak window and deletes in small autocommit chunks so no single
+ * transaction holds many row locks.
+ */
+public class PurgeWorker {
+    private static final int CHUNK_SIZE = 200;
+    private static final long CHUNK_PAUSE_MILLIS = 50;
+    private static final long CHECK_INTERVAL_MINUTES = 5;
+    // soft-deleted rows are kept this long before they are purged
+    private static final int GRACE_MINUTES = Integer.getInteger("askhub.purge.graceMinutes", 60);
+    private static final int WINDOW_START_HOUR = Integer.getInteger("askhub.purge.startHour", 2);
+    private static final int WINDOW_END_HOUR = Integer.getInteger("askhub.purge.endHour", 6);
+    private static PurgeWorker instance;
+    private final AtomicLong questionsPurged = new AtomicLong();
+    private final AtomicLong answersPurged = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long lastRunAt;
+    private ScheduledExecutorService scheduler;
+    private PurgeWorker() {
+    }
+    public static synchronized PurgeWorker getInstance() {
+        if (instance == null) {
+            instance = new PurgeWorker();
+        }
+        return instance;
+    }
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "askhub-purge-worker");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (isOffPeak()) purge(true);
+        }, CHECK_INTERVAL_MINUTES, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    public boolean isOffPeak() {
+        int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+        if (WINDOW_START_HOUR <= WINDOW_END_HOUR) {
+            return hour >= WINDOW_START_HOUR && hour < WINDOW_END_HOUR;
+        }
+        return hour >= WINDOW_START_HOUR || hour < WINDOW_END_HOUR;
+    }
+    // Purges everything past the grace period, regardless of the off-peak window; for manual runs.
+    public void runOnce() {
+        purge(false);
+    }
+    // offPeakOnly: stop between chunks once the window has closed, the rest waits for the next night
+    private void purge(boolean offPeakOnly) {
+        runs.incrementAndGet();
+        lastRunAt = System.currentTimeMillis();
+        try {
+            List<Integer> questionIds;
+            while (!(questionIds = findExpired("questions")).isEmpty()) {
+                for (int questionId : questionIds) {
+                    if (shouldStop(offPeakOnly)) return;
+                    purgeQuestion(questionId);
+                }
+            }
+            List<Integer> answerIds;
+            while (!(answerIds = findExpired("answers")).isEmpty()) {
+                if (shouldStop(offPeakOnly)) return;
+                deleteByIds("answers", answerIds);
+                answersPurged.addAndGet(answerIds.size());
+                enqueueOrphans("ANSWER", answerIds);
+                pause();
+            }
+        } catch (SQLException e) {
+            errors.incrementAndGet();
+            AppLog.error("PurgeWorker.runOnce", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    private boolean shouldStop(boolean offPeakOnly) {
+        return Thread.currentThread().isInterrupted() || (offPeakOnly && !isOffPeak());
+    }
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", scheduler != null);
+        stats.put("offPeak", isOffPeak());
+        stats.put("questionsPurged", questionsPurged.get());
+        stats.put("answersPurged", answersPurged.get());
+        stats.put("chunks", chunks.get());
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("errors", errors.get());
+        return stats;
+    }
+    private void purgeQuestion(int questionId) throws SQLException, InterruptedException {
+        // drain the answers first so the final question delete cascades over nothing
+        List<Integer> answerIds;
+        while (!(answerIds = findAnswerIds(questionId)).isEmpty()) {
+            deleteByIds("answers", answerIds);
+            answersPurged.addAndGet(answerIds.size());
+            enqueueOrphans("ANSWER", answerIds);
+            pause();
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM questions WHERE id = ? AND deleted_at IS NOT NULL")) {
+            stmt.setInt(1, questionId);
+            if (stmt.executeUpdate() > 0) {
+                questionsPurged.incrementAndGet();
+                OrphanReaper.getInstance().enqueue("QUESTION", questionId);
+            }
+        }
+    }
+    private List<Integer> findExpired(String table) throws SQLException {
+        String sql = "SELECT id FROM " + table + " " +
+                     "WHERE deleted_at IS NOT NULL AND deleted_at < ? " +
+                     "ORDER BY deleted_at LIMIT ?";
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(GRACE_MINUTES)));
+            stmt.setInt(2, CHUNK_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+    private List<Integer> findAnswerIds(int questionId) throws SQLException {
+        String sql = "SELECT id FROM answers WHERE question_id = ? LIMIT ?";
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, questionId);
+            stmt.setInt(2, CHUNK_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+    private void deleteByIds(String table, List<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("DELETE FROM ").append(table).append(" WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            stmt.executeUpdate();
+        }
+        chunks.incrementAndGet();
+    }
+    private void enqueueOrphans(String targetType, List<Integer> ids) {
+        OrphanReaper reaper = OrphanReaper.getInstance();
+        for (int id : ids) {
+            reaper.enqueue(targetType, id);
+        }
+    }
+    private void pause() throws InterruptedException {
+        Thread.sleep(CHUNK_PAUSE_MILLIS);
+    }
+}
@@ -1,11 +1,18 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Question;
 import com.askhub.models.User;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 public class QuestionDAO {
+    // Concurrent loads of the same question share one query; see SingleFlight. Writes to a
+    // question's row invalidate its id (view counts excepted: readers bump those all the time)
+    static final SingleFlight<Integer, Question> findByIdFlight =
+            new SingleFlight<>("QuestionDAO.findById", null, Question::new);
     public boolean createQuestion(Question question) {
         String sql = "INSERT INTO questions (user_id, topic_id, title, content, status) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -25,7 +32,7 @@ public class QuestionDAO {
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.createQuestion", e);
         }
         return false;
     }
@@ -35,6 +42,7 @@ public class QuestionDAO {
                      "FROM questions q " +
                      "JOIN users u ON q.user_id = u.id " +
                      "JOIN topics t ON q.topic_id = t.id " +
+                     "WHERE q.deleted_at IS NULL " +
                      "ORDER BY q.created_at DESC " +
                      "LIMIT ? OFFSET ?";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -46,16 +54,32 @@ public class QuestionDAO {
                 questions.add(extractQuestionFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.getAllQuestions", e);
         }
         return questions;
     }
     public Question findById(int id) {
+        return findByIdFlight.load(id, () -> loadById(id));
+    }
+    // The *Async reads run on DaoExecutor, for handlers that issue independent queries in parallel
+    public CompletableFuture<Question> findByIdAsync(int id) {
+        return DaoExecutor.supply(() -> findById(id), null);
+    }
+    public CompletableFuture<List<Question>> getAllQuestionsAsync(int page, int pageSize) {
+        return DaoExecutor.supply(() -> getAllQuestions(page, pageSize), Collections.emptyList());
+    }
+    public CompletableFuture<List<Question>> getQuestionsByTopicAsync(int topicId, int page, int pageSize) {
+        return DaoExecutor.supply(() -> getQuestionsByTopic(topicId, page, pageSize), Collections.emptyList());
+    }
+    public CompletableFuture<List<Question>> searchQuestionsAsync(String keyword, int page, int pageSize) {
+        return DaoExecutor.supply(() -> searchQuestions(keyword, page, pageSize), Collections.emptyList());
+    }
+    private Question loadById(int id) {
         String sql = "SELECT q.*, u.username, u.full_name, u.reputation, u.avatar_url, t.name as topic_name " +
                      "FROM questions q " +
                      "JOIN users u ON q.user_id = u.id " +
                      "JOIN topics t ON q.topic_id = t.id " +
-                     "WHERE q.id = ?";
+                     "WHERE q.id = ? AND q.deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
@@ -72,7 +96,7 @@ public class QuestionDAO {
                 return question;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.findById", e);
         }
         return null;
     }
@@ -82,7 +106,7 @@ public class QuestionDAO {
                      "FROM questions q " +
                      "JOIN users u ON q.user_id = u.id " +
                      "JOIN topics t ON q.topic_id = t.id " +
-                     "WHERE q.topic_id = ? " +
+                     "WHERE q.topic_id = ? AND q.deleted_at IS NULL " +
                      "ORDER BY q.created_at DESC " +
                      "LIMIT ? OFFSET ?";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -95,7 +119,7 @@ public class QuestionDAO {
                 questions.add(extractQuestionFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.getQuestionsByTopic", e);
         }
         return questions;
     }
@@ -105,7 +129,7 @@ public class QuestionDAO {
                      "FROM questions q " +
                      "JOIN users u ON q.user_id = u.id " +
                      "JOIN topics t ON q.topic_id = t.id " +
-                     "WHERE q.user_id = ? " +
+                     "WHERE q.user_id = ? AND q.deleted_at IS NULL " +
                      "ORDER BY q.created_at DESC";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -115,7 +139,7 @@ public class QuestionDAO {
                 questions.add(extractQuestionFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.getQuestionsByUser", e);
         }
         return questions;
     }
@@ -125,7 +149,7 @@ public class QuestionDAO {
                      "FROM questions q " +
                      "JOIN users u ON q.user_id = u.id " +
                      "JOIN topics t ON q.topic_id = t.id " +
-                     "WHERE MATCH(q.title, q.content) AGAINST(? IN NATURAL LANGUAGE MODE) " +
+                     "WHERE MATCH(q.title, q.content) AGAINST(? IN NATURAL LANGUAGE MODE) AND q.deleted_at IS NULL " +
                      "ORDER BY q.created_at DESC " +
                      "LIMIT ? OFFSET ?";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -138,10 +162,18 @@ public class QuestionDAO {
                 questions.add(extractQuestionFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.searchQuestions", e);
         }
         return questions;
     }
+    // Condition for INSERT ... SELECT of a comment or vote: its target, bound as the one parameter, is not soft-deleted
+    static String liveTargetCondition(String targetType) {
+        if ("ANSWER".equalsIgnoreCase(targetType)) {
+            return "EXISTS (SELECT 1 FROM answers a JOIN questions q ON a.question_id = q.id " +
+                   "WHERE a.id = ? AND a.deleted_at IS NULL AND q.deleted_at IS NULL)";
+        }
+        return "EXISTS (SELECT 1 FROM questions WHERE id = ? AND deleted_at IS NULL)";
+    }
     public void incrementViewCount(int questionId) {
         String sql = "UPDATE questions SET view_count = view_count + 1 WHERE id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -149,18 +181,25 @@ public class QuestionDAO {
             stmt.setInt(1, questionId);
             stmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.incrementViewCount", e);
         }
     }
+    public CompletableFuture<Void> incrementViewCountAsync(int questionId) {
+        return DaoExecutor.supply(() -> {
+            incrementViewCount(questionId);
+            return null;
+        }, null);
+    }
     public void updateVoteCount(int questionId, int voteChange) {
-        String sql = "UPDATE questions SET vote_count = vote_count + ? WHERE id = ?";
+        String sql = "UPDATE questions SET vote_count = vote_count + ? WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, voteChange);
             stmt.setInt(2, questionId);
             stmt.executeUpdate();
+            findByIdFlight.invalidate(questionId);
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.updateVoteCount", e);
         }
     }
     public void incrementAnswerCount(int questionId) {
@@ -169,24 +208,38 @@ public class QuestionDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, questionId);
             stmt.executeUpdate();
+            findByIdFlight.invalidate(questionId);
+        } catch (SQLException e) {
+            AppLog.error("QuestionDAO.incrementAnswerCount", e);
+        }
+    }
+    public void decrementAnswerCount(int questionId) {
+        String sql = "UPDATE questions SET answer_count = GREATEST(answer_count - 1, 0) WHERE id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, questionId);
+            stmt.executeUpdate();
+            findByIdFlight.invalidate(questionId);
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.decrementAnswerCount", e);
         }
     }
     public boolean updateStatus(int questionId, String status) {
-        String sql = "UPDATE questions SET status = ? WHERE id = ?";
+        String sql = "UPDATE questions SET status = ? WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, status);
             stmt.setInt(2, questionId);
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            findByIdFlight.invalidate(questionId);
+            return updated;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.updateStatus", e);
         }
         return false;
     }
     public int getTotalCount() {
-        String sql = "SELECT COUNT(*) FROM questions";
+        String sql = "SELECT COUNT(*) FROM questions WHERE deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
@@ -194,44 +247,48 @@ public class QuestionDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.getTotalCount", e);
         }
         return 0;
     }
     public boolean updateQuestion(Question question) {
-        String sql = "UPDATE questions SET title = ?, content = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        String sql = "UPDATE questions SET title = ?, content = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, question.getTitle());
             stmt.setString(2, question.getContent());
             stmt.setInt(3, question.getId());
             int rowsAffected = stmt.executeUpdate();
+            findByIdFlight.invalidate(question.getId());
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.updateQuestion", e);
         }
         return false;
     }
+    // Soft delete: hides the question (and with it its answers) from every read
+    // immediately; PurgeWorker removes the rows later in small transactions.
     public boolean deleteQuestion(int questionId) {
         // Get topic id first
         Question q = findById(questionId);
         int topicId = (q != null) ? q.getTopicId() : -1;
-        String sql = "DELETE FROM questions WHERE id = ?";
+        String sql = "UPDATE questions SET deleted_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, questionId);
             int rowsAffected = stmt.executeUpdate();
+            findByIdFlight.invalidate(questionId);
             if (rowsAffected > 0) {
                 if (topicId > 0) new TopicDAO().decrementQuestionCount(topicId);
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.deleteQuestion", e);
         }
         return false;
     }
     public int getTotalQuestionCount() {
-        String sql = "SELECT COUNT(*) as total FROM questions";
+        String sql = "SELECT COUNT(*) as total FROM questions WHERE deleted_at IS NULL";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             ResultSet rs = stmt.executeQuery();
@@ -239,11 +296,11 @@ public class QuestionDAO {
                 return rs.getInt("total");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("QuestionDAO.getTotalQuestionCount", e);
         }
         return 0;
     }
-    private Question extractQuestionFromResultSet(ResultSet rs) throws SQLException {
+    Question extractQuestionFromResultSet(ResultSet rs) throws SQLException {
         Question question = new Question();
         question.setId(rs.getInt("id"));
         question.setUserId(rs.getInt("user_id"));
@@ -254,6 +311,7 @@ public class QuestionDAO {
         question.setViewCount(rs.getInt("view_count"));
         question.setVoteCount(rs.getInt("vote_count"));
         question.setAnswerCount(rs.getInt("answer_count"));
+        question.setCommentCount(rs.getInt("comment_count"));
         question.setCreatedAt(rs.getTimestamp("created_at"));
         question.setUpdatedAt(rs.getTimestamp("updated_at"));
         question.setUsername(rs.getString("username"));
@@ -0,0 +1,154 @@
+package com.askhub.dao;
+import com.askhub.resilience.CircuitBreaker;
+import com.askhub.resilience.Deadline;
+import com.askhub.tracing.Span;
+import com.askhub.tracing.Tracer;
+import com.askhub.utils.DatabaseConfig;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+/**
+ * Coalesces concurrent identical reads: the first caller for a key runs the
+ * query, callers arriving while it is in flight wait for it, and every caller
+ * gets its own copy of the result. Nothing is kept once the query returns, so
+ * this is not a cache, but a follower can get a result up to one query's
+ * duration old: the query may have read its rows just before it arrived.
+ *
+ * Writes are never missed by their own caller, or by anyone who reads after
+ * the write returned: writers bump the key's generation (invalidate) once
+ * their change is committed, and a caller only joins a flight that started
+ * at or after the generation it saw on arrival. Generations are striped, so
+ * an unrelated write on the same stripe only costs a query of its own.
+ *
+ * A waiting caller still honours its own request Deadline, and database
+ * trouble seen by the leader is reported on each follower's thread too, so
+ * StaleCache and RequestDeadlines treat a shared failed load like their own.
+ * -Daskhub.dao.singleFlight=false turns coalescing off.
+ */
+public class SingleFlight<K, V> {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("askhub.dao.singleFlight", "true"));
+    private static final Collection<SingleFlight<?, ?>> ALL = new CopyOnWriteArrayList<>();
+    private final String name;
+    private final V fallback;
+    private final UnaryOperator<V> copy;
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(256);
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+    // fallback: what the DAO method returns when its query fails; copy: gives each caller its own result
+    SingleFlight(String name, V fallback, UnaryOperator<V> copy) {
+        this.name = name;
+        this.fallback = fallback;
+        this.copy = copy;
+        ALL.add(this);
+    }
+    V load(K key, Supplier<V> loader) {
+        return load(key, key, loader);
+    }
+    // scope: what writers invalidate, when several keys read the same rows (e.g. pages of one list)
+    V load(K key, Object scope, Supplier<V> loader) {
+        if (!ENABLED) return loader.get();
+        Flight<V> flight = new Flight<>(generations.get(stripe(scope)));
+        while (true) {
+            Flight<V> running = inFlight.putIfAbsent(key, flight);
+            if (running == null) break;
+            if (running.generation >= flight.generation) return follow(running);
+            // started before a write this caller must see: run a fresh query, and let later callers join that one
+            if (inFlight.replace(key, running, flight)) break;
+        }
+        leaders.increment();
+        CircuitBreaker breaker = DatabaseConfig.getCircuitBreaker();
+        int troubleBefore = breaker.troubleOnThisThread();
+        try {
+            V value = loader.get();
+            flight.troubled = breaker.troubleOnThisThread() != troubleBefore || Deadline.timedOut();
+            // the flight keeps the original, which no caller gets to modify
+            flight.result.complete(value);
+            return copyOf(value);
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+    private V follow(Flight<V> flight) {
+        followers.increment();
+        Deadline deadline = Deadline.current();
+        Span span = Tracer.getInstance().startSpan("singleflight " + name);
+        try {
+            V value = deadline != null
+                    ? flight.result.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS)
+                    : flight.result.get();
+            if (flight.troubled) DatabaseConfig.getCircuitBreaker().noteTroubleOnThisThread();
+            return copyOf(value);
+        } catch (TimeoutException e) {
+            deadline.markTimedOut();
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw (Error) cause;
+        } finally {
+            span.end();
+        }
+    }
+    private V copyOf(V value) {
+        return value == null || value == fallback ? value : copy.apply(value);
+    }
+    // Call after the write is committed
+    void invalidate(Object scope) {
+        generations.incrementAndGet(stripe(scope));
+    }
+    // For writes that cannot tell which keys they affect
+    void invalidateAll() {
+        for (int i = 0; i < generations.length(); i++) generations.incrementAndGet(i);
+    }
+    static <T> UnaryOperator<List<T>> listCopy(UnaryOperator<T> element) {
+        return list -> {
+            List<T> copy = new ArrayList<>(list.size());
+            for (T item : list) copy.add(element.apply(item));
+            return copy;
+        };
+    }
+    private int stripe(Object scope) {
+        int h = scope.hashCode();
+        return (h ^ (h >>> 16)) & (generations.length() - 1);
+    }
+    public static Collection<SingleFlight<?, ?>> getAll() {
+        return ALL;
+    }
+    public String getName() {
+        return name;
+    }
+    public long getLeaders() {
+        return leaders.sum();
+    }
+    public long getFollowers() {
+        return followers.sum();
+    }
+    private static class Flight<V> {
+        // the key's generation when the query started
+        final long generation;
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // written before result completes, so visible to whoever sees the result
+        volatile boolean troubled;
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
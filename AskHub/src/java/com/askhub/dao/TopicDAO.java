@@ -1,11 +1,19 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Topic;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 public class TopicDAO {
+    // Concurrent loads of the topic list share one query; see SingleFlight. Every topic write invalidates it
+    private static final SingleFlight<String, List<Topic>> allTopicsFlight = new SingleFlight<>(
+            "TopicDAO.getAllTopics", Collections.emptyList(), SingleFlight.listCopy(Topic::new));
     public List<Topic> getAllTopics() {
+        return allTopicsFlight.load("all", this::loadAllTopics);
+    }
+    private List<Topic> loadAllTopics() {
         List<Topic> topics = new ArrayList<>();
         String sql = "SELECT * FROM topics ORDER BY question_count DESC, name ASC";
         try (Connection conn = DatabaseConfig.getConnection();
@@ -15,7 +23,7 @@ public class TopicDAO {
                 topics.add(extractTopicFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.getAllTopics", e);
         }
         return topics;
     }
@@ -29,7 +37,7 @@ public class TopicDAO {
                 return extractTopicFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.findById", e);
         }
         return null;
     }
@@ -43,7 +51,7 @@ public class TopicDAO {
                 return extractTopicFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.findBySlug", e);
         }
         return null;
     }
@@ -55,6 +63,7 @@ public class TopicDAO {
             stmt.setString(2, topic.getDescription());
             stmt.setString(3, topic.getSlug());
             int rowsAffected = stmt.executeUpdate();
+            allTopicsFlight.invalidate("all");
             if (rowsAffected > 0) {
                 ResultSet rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
@@ -63,7 +72,7 @@ public class TopicDAO {
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.createTopic", e);
         }
         return false;
     }
@@ -73,8 +82,9 @@ public class TopicDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, topicId);
             stmt.executeUpdate();
+            allTopicsFlight.invalidate("all");
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.incrementQuestionCount", e);
         }
     }
     public void decrementQuestionCount(int topicId) {
@@ -83,8 +93,9 @@ public class TopicDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, topicId);
             stmt.executeUpdate();
+            allTopicsFlight.invalidate("all");
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.decrementQuestionCount", e);
         }
     }
     public boolean updateTopic(Topic topic) {
@@ -95,9 +106,11 @@ public class TopicDAO {
             stmt.setString(2, topic.getDescription());
             stmt.setString(3, topic.getSlug());
             stmt.setInt(4, topic.getId());
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            allTopicsFlight.invalidate("all");
+            return updated;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.updateTopic", e);
         }
         return false;
     }
@@ -107,9 +120,11 @@ public class TopicDAO {
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, topicId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            allTopicsFlight.invalidate("all");
+            return deleted;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("TopicDAO.deleteTopic", e);
         }
         return false;
     }
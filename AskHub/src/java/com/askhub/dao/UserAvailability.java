@@ -0,0 +1,162 @@
+package com.askhub.dao;
+import com.askhub.logging.AppLog;
+import com.askhub.utils.BloomFilter;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+/**
+ * Answers "is this username / email free?" for registration forms as they
+ * are typed. Bloom filters of every username and email answer most checks
+ * from memory: a name the filter has never seen is free without a query.
+ * Only a possible hit (a real one, or a false positive at about
+ * -Daskhub.availability.fpp, default 1%) is confirmed against the table,
+ * which applies the column's own collation.
+ *
+ * For a miss to be trusted, names equal under utf8mb4_unicode_ci must share
+ * a filter key, so key() folds the same differences: trailing spaces, case
+ * and accents. Rarer equivalences of that collation (ligatures and the like)
+ * are not folded; such a name is reported free and then refused by the
+ * UNIQUE constraint when the account is created.
+ *
+ * start() builds the filters on a background thread by streaming the users
+ * table; until then every check is a query. insertUser() adds each new user.
+ * Deactivated users stay in, as their rows still hold the names. Filters
+ * are sized for twice the current table; once more names than planned are
+ * in, they are rebuilt twice as large, the old ones serving meanwhile.
+ * -Daskhub.availability.capacity sets the minimum size (default 100000).
+ */
+public class UserAvailability {
+    private static final double FALSE_POSITIVE_RATE = Double.parseDouble(System.getProperty("askhub.availability.fpp", "0.01"));
+    private static final long MIN_CAPACITY = Long.getLong("askhub.availability.capacity", 100000);
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static UserAvailability instance;
+    private final UserDAO userDAO = new UserDAO();
+    // current answers checks; building, while a (re)build runs, receives adds too
+    private volatile Filters current;
+    private volatile Filters building;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder confirmedTaken = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder unfiltered = new LongAdder();
+    private UserAvailability() {
+    }
+    public static synchronized UserAvailability getInstance() {
+        if (instance == null) {
+            instance = new UserAvailability();
+        }
+        return instance;
+    }
+    public void start() {
+        if (current == null) rebuild(MIN_CAPACITY);
+    }
+    public boolean isUsernameAvailable(String username) {
+        Filters filters = current;
+        return isAvailable(filters == null ? null : filters.usernames, username, userDAO::usernameTaken);
+    }
+    public boolean isEmailAvailable(String email) {
+        Filters filters = current;
+        return isAvailable(filters == null ? null : filters.emails, email, userDAO::emailTaken);
+    }
+    private boolean isAvailable(BloomFilter filter, String value, Predicate<String> taken) {
+        if (filter == null) {
+            unfiltered.increment();
+            return !taken.test(value);
+        }
+        if (!filter.mightContain(key(value))) {
+            filterNegatives.increment();
+            return true;
+        }
+        if (taken.test(value)) {
+            confirmedTaken.increment();
+            return false;
+        }
+        falsePositives.increment();
+        return true;
+    }
+    public void add(String username, String email) {
+        // building before current: see the order rebuild() publishes them in
+        Filters next = building;
+        Filters filters = current;
+        if (next != null) next.add(username, email);
+        if (filters == null) return;
+        if (filters != next) filters.add(username, email);
+        if (filters.usernames.getInsertions() > filters.usernames.getExpectedInsertions()) {
+            rebuild(filters.usernames.getExpectedInsertions() * 2);
+        }
+    }
+    // Streams the table into fresh filters on a background thread, then swaps them in
+    private void rebuild(long minCapacity) {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            long started = System.currentTimeMillis();
+            try {
+                // room to double before the next rebuild
+                long capacity = Math.max(minCapacity, userDAO.countUsers() * 2);
+                Filters fresh = new Filters(capacity);
+                building = fresh;
+                long[] rows = new long[1];
+                userDAO.forEachUsernameAndEmail((username, email) -> {
+                    fresh.add(username, email);
+                    rows[0]++;
+                });
+                current = fresh;
+                building = null;
+                AppLog.info("UserAvailability", "filters built from " + rows[0] + " users, capacity " + capacity
+                        + ", in " + (System.currentTimeMillis() - started) + "ms");
+            } catch (Exception e) {
+                building = null;
+                AppLog.error("UserAvailability.rebuild", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "askhub-availability-build");
+        t.setDaemon(true);
+        t.start();
+    }
+    // utf8mb4_unicode_ci compares without trailing spaces (PAD SPACE), case or accents
+    private static String key(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') end--;
+        String decomposed = Normalizer.normalize(value.substring(0, end), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).replace("ß", "ss");
+    }
+    public boolean isReady() {
+        return current != null;
+    }
+    public long getEntries() {
+        Filters filters = current;
+        return filters == null ? 0 : filters.usernames.getInsertions();
+    }
+    public double getEstimatedFalsePositiveRate() {
+        Filters filters = current;
+        return filters == null ? 0 : filters.usernames.estimatedFalsePositiveRate();
+    }
+    public long getFilterNegatives() {
+        return filterNegatives.sum();
+    }
+    public long getConfirmedTaken() {
+        return confirmedTaken.sum();
+    }
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+    public long getUnfiltered() {
+        return unfiltered.sum();
+    }
+    private static class Filters {
+        final BloomFilter usernames;
+        final BloomFilter emails;
+        Filters(long capacity) {
+            usernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            emails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        }
+        void add(String username, String email) {
+            if (username != null) usernames.add(key(username));
+            if (email != null) emails.add(key(email));
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.User;
 import com.askhub.utils.DatabaseConfig;
 import com.askhub.utils.PasswordUtil;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 public class UserDAO {
+    public enum CreateResult { CREATED, USERNAME_EXISTS, EMAIL_EXISTS, FAILED }
+    // Hashes the password first: slow, so never on the Swing EDT
     public boolean createUser(User user) {
+        return insertUser(user, PasswordUtil.hashPassword(user.getPassword())) == CreateResult.CREATED;
+    }
+    // A single INSERT; the UNIQUE constraints on username and email detect duplicates
+    public CreateResult insertUser(User user, String passwordHash) {
         String sql = "INSERT INTO users (username, email, password, full_name, role) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getEmail());
-            stmt.setString(3, PasswordUtil.hashPassword(user.getPassword()));
+            stmt.setString(3, passwordHash);
             stmt.setString(4, user.getFullName());
             stmt.setString(5, user.getRole());
             int rowsAffected = stmt.executeUpdate();
@@ -21,12 +31,47 @@ public class UserDAO {
                 if (rs.next()) {
                     user.setId(rs.getInt(1));
                 }
-                return true;
+                UserAvailability.getInstance().add(user.getUsername(), user.getEmail());
+                return CreateResult.CREATED;
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // NOT NULL, CHECK and foreign key violations land here too; only a duplicate key means taken
+            if (!isDuplicateKey(e)) {
+                AppLog.error("UserDAO.insertUser", e);
+                return CreateResult.FAILED;
             }
+            // which constraint fired is driver-specific text; asking costs a query on this path only
+            return usernameTaken(user.getUsername()) ? CreateResult.USERNAME_EXISTS : CreateResult.EMAIL_EXISTS;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.insertUser", e);
         }
-        return false;
+        return CreateResult.FAILED;
+    }
+    // MySQL ER_DUP_ENTRY (1062), or the standard unique-violation SQLState H2 reports
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+    // Deactivated accounts included, since they still hold their username; true when unsure
+    public boolean usernameTaken(String username) {
+        return exists("SELECT 1 FROM users WHERE username = ?", username, "UserDAO.usernameTaken");
+    }
+    public boolean emailTaken(String email) {
+        return exists("SELECT 1 FROM users WHERE email = ?", email, "UserDAO.emailTaken");
+    }
+    private boolean exists(String sql, String value, String source) {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, value);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            AppLog.error(source, e);
+        }
+        return true;
+    }
+    public CompletableFuture<CreateResult> insertUserAsync(User user, String passwordHash) {
+        return DaoExecutor.supply(() -> insertUser(user, passwordHash), CreateResult.FAILED);
     }
     public User findByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ? AND is_active = TRUE";
@@ -38,7 +83,7 @@ public class UserDAO {
                 return extractUserFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.findByUsername", e);
         }
         return null;
     }
@@ -52,7 +97,7 @@ public class UserDAO {
                 return extractUserFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.findByEmail", e);
         }
         return null;
     }
@@ -66,10 +111,12 @@ public class UserDAO {
                 return extractUserFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.findById", e);
         }
         return null;
     }
+    // Slow (a full password hash), so never on the Swing EDT. Leaves upgrading an outdated
+    // stored hash (PasswordUtil.needsRehash) to the caller, which can do it in the background
     public User authenticate(String username, String password) {
         User user = findByUsername(username);
         if (user != null && PasswordUtil.verifyPassword(password, user.getPassword())) {
@@ -78,15 +125,29 @@ public class UserDAO {
         }
         return null;
     }
-    private void updateLastLogin(int userId) {
+    public void updateLastLogin(int userId) {
         String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             stmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.updateLastLogin", e);
+        }
+    }
+    // Stores a rehashed password; the old hash must still be in place, so a concurrent password change wins
+    public boolean updatePassword(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, oldHash);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            AppLog.error("UserDAO.updatePassword", e);
         }
+        return false;
     }
     public boolean updateUser(User user) {
         String sql = "UPDATE users SET full_name = ?, bio = ?, avatar_url = ? WHERE id = ?";
@@ -98,7 +159,7 @@ public class UserDAO {
             stmt.setInt(4, user.getId());
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.updateUser", e);
         }
         return false;
     }
@@ -110,7 +171,7 @@ public class UserDAO {
             stmt.setInt(2, userId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.updateReputation", e);
         }
         return false;
     }
@@ -121,10 +182,29 @@ public class UserDAO {
             stmt.setInt(1, userId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.deactivateUser", e);
         }
         return false;
     }
+    public List<Integer> getInactiveUserIds() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT id FROM users WHERE is_active = FALSE";
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        } catch (SQLException e) {
+            AppLog.error("UserDAO.getInactiveUserIds", e);
+        }
+        return ids;
+    }
+    public long countUsers() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users ORDER BY created_at DESC";
@@ -135,10 +215,38 @@ public class UserDAO {
                 users.add(extractUserFromResultSet(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("UserDAO.getAllUsers", e);
         }
         return users;
     }
+    // Row-at-a-time variant of getAllUsers for callers that stream the result
+    public void forEachUser(Consumer<User> consumer) throws SQLException {
+        String sql = "SELECT * FROM users ORDER BY created_at DESC";
+        boolean mysql = DatabaseConfig.getUrl().startsWith("jdbc:mysql");
+        try (Connection conn = mysql ? DatabaseConfig.getConnection("useCursorFetch=true") : DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(500);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(extractUserFromResultSet(rs));
+                }
+            }
+        }
+    }
+    // Just the two unique columns, streamed like forEachUser; for building UserAvailability
+    public void forEachUsernameAndEmail(BiConsumer<String, String> consumer) throws SQLException {
+        String sql = "SELECT username, email FROM users";
+        boolean mysql = DatabaseConfig.getUrl().startsWith("jdbc:mysql");
+        try (Connection conn = mysql ? DatabaseConfig.getConnection("useCursorFetch=true") : DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+    }
     private User extractUserFromResultSet(ResultSet rs) throws SQLException {
         User user = new User();
         user.setId(rs.getInt("id"));
@@ -1,4 +1,5 @@
 package com.askhub.dao;
+import com.askhub.logging.AppLog;
 import com.askhub.models.Vote;
 import com.askhub.utils.DatabaseConfig;
 import java.sql.*;
@@ -16,13 +17,15 @@ public class VoteDAO {
         }
     }
     private boolean createVote(Vote vote) {
-        String sql = "INSERT INTO votes (user_id, target_type, target_id, vote_type) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO votes (user_id, target_type, target_id, vote_type) " +
+                     "SELECT ?, ?, ?, ? FROM DUAL WHERE " + QuestionDAO.liveTargetCondition(vote.getTargetType());
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, vote.getUserId());
             stmt.setString(2, vote.getTargetType());
             stmt.setInt(3, vote.getTargetId());
             stmt.setString(4, vote.getVoteType());
+            stmt.setInt(5, vote.getTargetId());
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
                 updateTargetVoteCount(vote.getTargetType(), vote.getTargetId(),
@@ -46,12 +49,12 @@ public class VoteDAO {
                         nd.createNotification(n);
                     }
                 } catch (Exception ex) {
-                    ex.printStackTrace();
+                    AppLog.error("VoteDAO.createVote", ex);
                 }
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("VoteDAO.createVote", e);
         }
         return false;
     }
@@ -86,12 +89,12 @@ public class VoteDAO {
                         nd.createNotification(n);
                     }
                 } catch (Exception ex) {
-                    ex.printStackTrace();
+                    AppLog.error("VoteDAO.updateVote", ex);
                 }
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("VoteDAO.updateVote", e);
         }
         return false;
     }
@@ -111,7 +114,7 @@ public class VoteDAO {
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("VoteDAO.removeVote", e);
         }
         return false;
     }
@@ -127,7 +130,7 @@ public class VoteDAO {
                 return extractVoteFromResultSet(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("VoteDAO.findVote", e);
         }
         return null;
     }
@@ -151,7 +154,7 @@ public class VoteDAO {
                 return rs.getInt("vote_count");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            AppLog.error("VoteDAO.getVoteCount", e);
         }
         return 0;
     }
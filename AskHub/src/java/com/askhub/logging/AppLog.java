@@ -0,0 +1,180 @@
+package com.askhub.logging;
+import com.askhub.tracing.Tracer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Structured application log. Callers only enqueue an entry on a bounded
+ * ring buffer and never block: one writer thread formats each entry as a
+ * JSON line and writes it to stderr, or to -Daskhub.log.file. Repeats of the
+ * same failure from the same source within -Daskhub.log.suppressMs (default
+ * 10s) are counted rather than written; the next line written for it carries
+ * the count. Errors are counted per source (e.g. "QuestionDAO.findById") for
+ * /metrics.
+ */
+public class AppLog {
+    private static final int CAPACITY = 8192;
+    private static final int MAX_STACK_FRAMES = 30;
+    private static final int MAX_SUPPRESSION_KEYS = 10000;
+    private static final long SUPPRESS_MILLIS = Long.getLong("askhub.log.suppressMs", 10000);
+    private static final BlockingQueue<Entry> RING = new ArrayBlockingQueue<>(CAPACITY);
+    private static final ConcurrentMap<String, LongAdder> ERRORS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Suppression> RECENT = new ConcurrentHashMap<>();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder SUPPRESSED = new LongAdder();
+    private static final JsonFactory JSON = new JsonFactory();
+    static {
+        Thread writer = new Thread(AppLog::drain, "askhub-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    public static void error(String source, Throwable t) {
+        log("ERROR", source, t.getMessage(), t);
+    }
+    public static void error(String source, String message, Throwable t) {
+        log("ERROR", source, message, t);
+    }
+    public static void warn(String source, String message) {
+        log("WARN", source, message, null);
+    }
+    public static void info(String source, String message) {
+        log("INFO", source, message, null);
+    }
+    // errors logged per source since startup, sorted by source
+    public static Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : ERRORS.entrySet()) {
+            counts.put(e.getKey(), e.getValue().sum());
+        }
+        return counts;
+    }
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+    public static long getSuppressed() {
+        return SUPPRESSED.sum();
+    }
+    private static void log(String level, String source, String message, Throwable t) {
+        if (t != null) {
+            LongAdder counter = ERRORS.get(source);
+            if (counter == null) counter = ERRORS.computeIfAbsent(source, s -> new LongAdder());
+            counter.increment();
+        }
+        long now = System.currentTimeMillis();
+        String key = source + '|' + (t != null ? t.getClass().getName() : message);
+        Suppression s = RECENT.get(key);
+        if (s == null) {
+            if (RECENT.size() >= MAX_SUPPRESSION_KEYS) RECENT.clear();
+            s = RECENT.computeIfAbsent(key, k -> new Suppression());
+        }
+        long suppressed = s.admit(now);
+        if (suppressed < 0) {
+            SUPPRESSED.increment();
+            return;
+        }
+        Entry entry = new Entry(now, level, source, message, t, Thread.currentThread().getName(),
+                Tracer.getInstance().currentTraceId(), suppressed);
+        if (!RING.offer(entry)) DROPPED.increment();
+    }
+    private static void drain() {
+        PrintStream out = openSink();
+        while (true) {
+            try {
+                Entry entry = RING.take();
+                out.println(format(entry));
+                if (RING.isEmpty()) out.flush();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                DROPPED.increment();
+            }
+        }
+    }
+    private static PrintStream openSink() {
+        String file = System.getProperty("askhub.log.file");
+        if (file != null) {
+            try {
+                OutputStream stream = new FileOutputStream(file, true);
+                return new PrintStream(stream, false, "UTF-8");
+            } catch (IOException e) {
+                System.err.println("askhub.log.file not writable, logging to stderr: " + e);
+            }
+        }
+        return System.err;
+    }
+    private static String format(Entry entry) throws IOException {
+        StringWriter sw = new StringWriter(256);
+        try (JsonGenerator g = JSON.createGenerator(sw)) {
+            g.writeStartObject();
+            g.writeStringField("ts", Instant.ofEpochMilli(entry.time).toString());
+            g.writeStringField("level", entry.level);
+            g.writeStringField("source", entry.source);
+            if (entry.message != null) g.writeStringField("msg", entry.message);
+            g.writeStringField("thread", entry.thread);
+            if (entry.traceId != null) g.writeStringField("trace", entry.traceId);
+            if (entry.suppressed > 0) g.writeNumberField("suppressed", entry.suppressed);
+            if (entry.error != null) {
+                g.writeStringField("error", entry.error.getClass().getName());
+                g.writeArrayFieldStart("stack");
+                StackTraceElement[] frames = entry.error.getStackTrace();
+                for (int i = 0; i < Math.min(frames.length, MAX_STACK_FRAMES); i++) {
+                    g.writeString(frames[i].toString());
+                }
+                g.writeEndArray();
+                Throwable cause = entry.error.getCause();
+                if (cause != null && cause != entry.error) {
+                    g.writeStringField("cause", cause.getClass().getName() + ": " + cause.getMessage());
+                }
+            }
+            g.writeEndObject();
+        }
+        return sw.toString();
+    }
+    private static class Suppression {
+        private final AtomicLong windowStart = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+        // >= 0: write now, carrying that many suppressed repeats; < 0: suppress this one
+        long admit(long now) {
+            long start = windowStart.get();
+            if (now - start >= SUPPRESS_MILLIS && windowStart.compareAndSet(start, now)) {
+                return suppressed.getAndSet(0);
+            }
+            suppressed.incrementAndGet();
+            return -1;
+        }
+    }
+    private static class Entry {
+        final long time;
+        final String level;
+        final String source;
+        final String message;
+        final Throwable error;
+        final String thread;
+        final String traceId;
+        final long suppressed;
+        Entry(long time, String level, String source, String message, Throwable error, String thread,
+              String traceId, long suppressed) {
+            this.time = time;
+            this.level = level;
+            this.source = source;
+            this.message = message;
+            this.error = error;
+            this.thread = thread;
+            this.traceId = traceId;
+            this.suppressed = suppressed;
+        }
+    }
+}
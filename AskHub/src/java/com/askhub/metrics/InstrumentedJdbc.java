@@ -0,0 +1,203 @@
+package com.askhub.metrics;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import com.askhub.metrics.jfr.QueryEvent;
+import com.askhub.resilience.Deadline;
+import com.askhub.tracing.Span;
+import com.askhub.tracing.Tracer;
+import com.askhub.utils.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Arrays;
+/**
+ * Dynamic-proxy wrappers around Connection and its statements that time
+ * every execute* call and report it to QueryStats with the bound parameters.
+ * Execution time covers the driver round trip up to the first result, not
+ * the caller's iteration over the ResultSet. While a recording has
+ * QueryEvent enabled, result sets are wrapped too so the event can carry
+ * the row count and the time until the result is closed. Statement
+ * latencies and connection-level failures also feed the database circuit
+ * breaker, and every statement is held to the request Deadline: it fails
+ * without reaching the database once the deadline has passed and otherwise
+ * runs with a query timeout no longer than the time left.
+ */
+public class InstrumentedJdbc {
+    private static final ClassLoader LOADER = InstrumentedJdbc.class.getClassLoader();
+    public static Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(LOADER, new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedJdbc.invoke(target, method, args);
+            String name = method.getName();
+            if (result instanceof Statement && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+                String sql = name.equals("createStatement") ? null : (String) args[0];
+                return Proxy.newProxyInstance(LOADER, new Class<?>[]{method.getReturnType()},
+                        new StatementHandler((Statement) result, (Connection) proxy, sql));
+            }
+            return result;
+        }
+    }
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String preparedSql;
+        private String batchSql;
+        private Object[] params = new Object[8];
+        private int paramCount;
+        private QueryEvent pending;
+        StatementHandler(Statement target, Connection connection, String preparedSql) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+        }
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                finishPending();
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : batchSql;
+                QueryEvent event = new QueryEvent();
+                boolean traced = event.isEnabled() && sql != null;
+                if (traced) {
+                    event.fingerprint = SqlFingerprint.of(sql);
+                    event.begin();
+                }
+                Span span = Tracer.getInstance().isRecording()
+                        ? Tracer.getInstance().startSpan(sql != null ? callerMethod() : "jdbc") : Span.NOOP;
+                if (span.isSampled() && sql != null) span.setAttribute("db.statement", SqlFingerprint.of(sql));
+                long start = System.nanoTime();
+                boolean failed = true;
+                boolean outage = false;
+                Deadline deadline = Deadline.current();
+                try {
+                    if (deadline != null) {
+                        if (deadline.isExpired()) throw new SQLTimeoutException("request deadline passed before statement");
+                        target.setQueryTimeout(deadline.queryTimeoutSeconds());
+                    }
+                    Object result = InstrumentedJdbc.invoke(target, method, args);
+                    failed = false;
+                    if (traced && result instanceof ResultSet) {
+                        pending = event;
+                        return Proxy.newProxyInstance(LOADER, new Class<?>[]{ResultSet.class},
+                                new ResultSetHandler((ResultSet) result, event));
+                    }
+                    if (traced) finish(event, affectedRows(result), false);
+                    return result;
+                } catch (SQLException e) {
+                    if (deadline != null && e instanceof SQLTimeoutException && deadline.isExpired()) {
+                        // our own deadline, not a sick database: keep it out of the breaker
+                        deadline.markTimedOut();
+                    } else {
+                        outage = DatabaseConfig.isOutage(e);
+                    }
+                    throw e;
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    if (sql != null) {
+                        QueryStats.getInstance().record(sql, elapsed, Arrays.copyOf(params, paramCount), failed);
+                    }
+                    if (outage) DatabaseConfig.getCircuitBreaker().onFailure(elapsed);
+                    else if (!failed) DatabaseConfig.getCircuitBreaker().onSuccess(elapsed);
+                    if (traced && failed) finish(event, 0, true);
+                    if (failed) span.markError();
+                    span.end();
+                }
+            }
+            if (name.equals("close")) {
+                finishPending();
+            }
+            if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(params, null);
+                paramCount = 0;
+            } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                batchSql = (String) args[0];
+            } else if (name.equals("getConnection")) {
+                return connection;
+            }
+            return InstrumentedJdbc.invoke(target, method, args);
+        }
+        // a result set the DAO never closed is done once its statement moves on
+        private void finishPending() {
+            if (pending != null) {
+                finish(pending, -1, false);
+                pending = null;
+            }
+        }
+        private void bind(int index, Object value) {
+            if (index < 1) return;
+            if (index > params.length) params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+    }
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final QueryEvent event;
+        ResultSetHandler(ResultSet target, QueryEvent event) {
+            this.target = target;
+            this.event = event;
+        }
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedJdbc.invoke(target, method, args);
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                event.rows++;
+            } else if (name.equals("close")) {
+                finish(event, -1, false);
+            }
+            return result;
+        }
+    }
+    // rows < 0 keeps the count already accumulated by the result set
+    private static void finish(QueryEvent event, long rows, boolean failed) {
+        if (!event.markFinished()) return;
+        event.end();
+        if (!event.shouldCommit()) return;
+        if (rows >= 0) event.rows = rows;
+        event.failed = failed;
+        event.daoMethod = callerMethod();
+        event.commit();
+    }
+    private static long affectedRows(Object result) {
+        if (result instanceof Number) return ((Number) result).longValue();
+        long total = 0;
+        if (result instanceof int[]) {
+            for (int n : (int[]) result) total += Math.max(n, 0);
+        } else if (result instanceof long[]) {
+            for (long n : (long[]) result) total += Math.max(n, 0);
+        }
+        return total;
+    }
+    // First application frame outside this package, e.g. "QuestionDAO.findById"
+    private static String callerMethod() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String cls = frame.getClassName();
+            if (cls.startsWith("com.askhub.") && !cls.startsWith("com.askhub.metrics.")) {
+                return cls.substring(cls.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return null;
+    }
+}
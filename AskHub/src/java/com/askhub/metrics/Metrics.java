@@ -0,0 +1,104 @@
+package com.askhub.metrics;
+import com.askhub.metrics.jfr.RequestEvent;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerEntry;
+import io.javalin.http.HandlerType;
+import io.javalin.http.PathMatcher;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+/**
+ * Per-route request metrics for the API server, collected by before/after
+ * hooks and exported in Prometheus text format at /metrics.
+ */
+public class Metrics {
+    private static final String START_ATTR = "metrics.start";
+    private static final String ROUTE_ATTR = "metrics.route";
+    private static final String BUDGET_ATTR = "metrics.queryBudget";
+    private static final String EVENT_ATTR = "metrics.jfrEvent";
+    private static final String UNMATCHED = "unmatched";
+    private static Metrics instance;
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private Metrics() {
+    }
+    public static synchronized Metrics getInstance() {
+        if (instance == null) {
+            instance = new Metrics();
+        }
+        return instance;
+    }
+    public void install(Javalin app) {
+        PathMatcher matcher = app.javalinServlet().getMatcher();
+        app.before(ctx -> {
+            HandlerType type = handlerType(ctx);
+            // unknown methods share one series, so odd clients cannot grow the route map
+            RouteMetrics route = type == null ? route("OTHER", UNMATCHED) : route(ctx.method(), resolveRoute(matcher, type, ctx));
+            route.begin();
+            ctx.attribute(ROUTE_ATTR, route);
+            ctx.attribute(BUDGET_ATTR, QueryBudget.openRequest(route.getMethod() + " " + route.getRoute()));
+            RequestEvent event = new RequestEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                ctx.attribute(EVENT_ATTR, event);
+            }
+            ctx.attribute(START_ATTR, System.nanoTime());
+        });
+        app.after(ctx -> {
+            QueryBudget.Scope budget = ctx.attribute(BUDGET_ATTR);
+            RouteMetrics route = ctx.attribute(ROUTE_ATTR);
+            Long start = ctx.attribute(START_ATTR);
+            if (route != null && start != null) {
+                route.end(ctx.status(), System.nanoTime() - start);
+            }
+            RequestEvent event = ctx.attribute(EVENT_ATTR);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = ctx.method();
+                    event.route = route != null ? route.getRoute() : null;
+                    event.path = ctx.path();
+                    event.status = ctx.status();
+                    event.commit();
+                }
+            }
+            if (budget != null) budget.close();
+        });
+        app.get("/metrics", ctx -> {
+            ctx.contentType(PrometheusExporter.CONTENT_TYPE);
+            ctx.result(PrometheusExporter.export(this));
+        });
+    }
+    // Route template of the request as resolved by the before hook, e.g. "/api/questions/{id}"
+    public static String routeOf(Context ctx) {
+        RouteMetrics route = ctx.attribute(ROUTE_ATTR);
+        return route != null ? route.getRoute() : ctx.path();
+    }
+    public static void recordDeadlineExceeded(Context ctx, String phase) {
+        RouteMetrics route = ctx.attribute(ROUTE_ATTR);
+        if (route != null) route.deadlineExceeded(phase);
+    }
+    public Collection<RouteMetrics> getRoutes() {
+        return routes.values();
+    }
+    private RouteMetrics route(String method, String path) {
+        String key = method + " " + path;
+        RouteMetrics route = routes.get(key);
+        if (route == null) route = routes.computeIfAbsent(key, k -> new RouteMetrics(method, path));
+        return route;
+    }
+    // Before-handlers run ahead of endpoint matching, so look the template up the same way Javalin will.
+    private static String resolveRoute(PathMatcher matcher, HandlerType type, Context ctx) {
+        List<HandlerEntry> entries = matcher.findEntries(type, ctx.path());
+        return entries.isEmpty() ? UNMATCHED : entries.get(0).getPath();
+    }
+    // null for a method Javalin has no handler type for (PROPFIND, ...); such requests match no route
+    private static HandlerType handlerType(Context ctx) {
+        try {
+            return HandlerType.valueOf(ctx.method());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
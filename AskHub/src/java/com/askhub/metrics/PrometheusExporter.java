@@ -0,0 +1,251 @@
+package com.askhub.metrics;
+import com.askhub.auth.PasswordHasher;
+import com.askhub.auth.SessionTokens;
+import com.askhub.dao.DaoExecutor;
+import com.askhub.dao.LastLoginWriter;
+import com.askhub.dao.SingleFlight;
+import com.askhub.dao.UserAvailability;
+import com.askhub.logging.AppLog;
+import com.askhub.resilience.Bulkhead;
+import com.askhub.resilience.Bulkheads;
+import com.askhub.resilience.CircuitBreaker;
+import com.askhub.resilience.ConnectionLimiter;
+import com.askhub.resilience.RateLimiter;
+import com.askhub.resilience.StaleCache;
+import com.askhub.utils.DatabaseConfig;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+/**
+ * Renders Metrics plus JVM gauges in the Prometheus text exposition format.
+ */
+public class PrometheusExporter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    public static String export(Metrics metrics) {
+        StringBuilder sb = new StringBuilder(8192);
+        writeRoutes(sb, metrics);
+        writeQueryBudgets(sb);
+        writeErrors(sb);
+        writeResilience(sb);
+        writeJvm(sb);
+        return sb.toString();
+    }
+    private static void writeRoutes(StringBuilder sb, Metrics metrics) {
+        header(sb, "askhub_http_requests_total", "counter", "Completed requests by route and status code.");
+        for (RouteMetrics r : metrics.getRoutes()) {
+            for (Map.Entry<Integer, LongAdder> e : r.getStatuses().entrySet()) {
+                sb.append("askhub_http_requests_total{").append(labels(r)).append(",status=\"").append(e.getKey())
+                        .append("\"} ").append(e.getValue().sum()).append('\n');
+            }
+        }
+        header(sb, "askhub_http_deadline_exceeded_total", "counter", "Requests that ran past their deadline, by phase (queue: 503, handler: 504).");
+        for (RouteMetrics r : metrics.getRoutes()) {
+            for (Map.Entry<String, LongAdder> e : r.getDeadlinesExceeded().entrySet()) {
+                sample(sb, "askhub_http_deadline_exceeded_total{" + labels(r) + ",phase=\"" + e.getKey() + "\"}", e.getValue().sum());
+            }
+        }
+        header(sb, "askhub_http_requests_in_flight", "gauge", "Requests currently being handled.");
+        for (RouteMetrics r : metrics.getRoutes()) {
+            sample(sb, "askhub_http_requests_in_flight{" + labels(r) + "}", r.getInFlight());
+        }
+        header(sb, "askhub_http_request_duration_seconds", "summary", "Request latency; quantiles cover the last 1-2 minutes.");
+        for (RouteMetrics r : metrics.getRoutes()) {
+            Histogram h = r.recentLatencies();
+            for (double q : QUANTILES) {
+                double value = h.getTotalCount() == 0 ? Double.NaN : h.getValueAtPercentile(q * 100) / 1e6;
+                sample(sb, "askhub_http_request_duration_seconds{" + labels(r) + ",quantile=\"" + q + "\"}", value);
+            }
+            sample(sb, "askhub_http_request_duration_seconds_sum{" + labels(r) + "}", r.getDurationSeconds());
+            sample(sb, "askhub_http_request_duration_seconds_count{" + labels(r) + "}", r.getCount());
+        }
+    }
+    private static void writeQueryBudgets(StringBuilder sb) {
+        header(sb, "askhub_sql_scopes_total", "counter", "Requests or Swing events that issued SQL.");
+        for (QueryBudget.ScopeStats s : QueryBudget.getStats()) {
+            sample(sb, "askhub_sql_scopes_total{scope=\"" + escape(s.getName()) + "\"}", s.getScopes());
+        }
+        header(sb, "askhub_sql_scope_statements_total", "counter", "Statements issued within those scopes.");
+        for (QueryBudget.ScopeStats s : QueryBudget.getStats()) {
+            sample(sb, "askhub_sql_scope_statements_total{scope=\"" + escape(s.getName()) + "\"}", s.getQueries());
+        }
+        header(sb, "askhub_sql_scope_over_budget_total", "counter", "Scopes that exceeded their statement budget.");
+        for (QueryBudget.ScopeStats s : QueryBudget.getStats()) {
+            sample(sb, "askhub_sql_scope_over_budget_total{scope=\"" + escape(s.getName()) + "\"}", s.getOverBudget());
+        }
+        header(sb, "askhub_sql_scope_repeated_total", "counter", "Scopes that repeated one fingerprint (N+1 suspects).");
+        for (QueryBudget.ScopeStats s : QueryBudget.getStats()) {
+            sample(sb, "askhub_sql_scope_repeated_total{scope=\"" + escape(s.getName()) + "\"}", s.getSuspects());
+        }
+    }
+    private static void writeErrors(StringBuilder sb) {
+        header(sb, "askhub_errors_total", "counter", "Errors logged by DAO method or route.");
+        for (Map.Entry<String, Long> e : AppLog.getErrorCounts().entrySet()) {
+            sample(sb, "askhub_errors_total{source=\"" + escape(e.getKey()) + "\"}", e.getValue());
+        }
+        header(sb, "askhub_log_suppressed_total", "counter", "Log lines folded into an earlier line for the same failure.");
+        sample(sb, "askhub_log_suppressed_total", AppLog.getSuppressed());
+        header(sb, "askhub_log_dropped_total", "counter", "Log lines dropped because the log buffer was full.");
+        sample(sb, "askhub_log_dropped_total", AppLog.getDropped());
+    }
+    private static void writeResilience(StringBuilder sb) {
+        CircuitBreaker breaker = DatabaseConfig.getCircuitBreaker();
+        String labels = "{breaker=\"" + escape(breaker.getName()) + "\"}";
+        header(sb, "askhub_circuit_state", "gauge", "Circuit breaker state: 0 closed, 1 open, 2 half-open.");
+        sample(sb, "askhub_circuit_state" + labels, breaker.getState().ordinal());
+        header(sb, "askhub_circuit_opened_total", "counter", "Times the breaker tripped open.");
+        sample(sb, "askhub_circuit_opened_total" + labels, breaker.getOpened());
+        header(sb, "askhub_circuit_rejected_total", "counter", "Calls failed fast while the breaker was open.");
+        sample(sb, "askhub_circuit_rejected_total" + labels, breaker.getRejected());
+        header(sb, "askhub_bulkhead_limit", "gauge", "Requests a route class may run at once.");
+        for (Bulkhead b : Bulkheads.getInstance().getBulkheads()) {
+            sample(sb, "askhub_bulkhead_limit{class=\"" + b.getName() + "\"}", b.getMaxConcurrent());
+        }
+        header(sb, "askhub_bulkhead_in_flight", "gauge", "Requests running per route class.");
+        for (Bulkhead b : Bulkheads.getInstance().getBulkheads()) {
+            sample(sb, "askhub_bulkhead_in_flight{class=\"" + b.getName() + "\"}", b.getInFlight());
+        }
+        header(sb, "askhub_bulkhead_queued", "gauge", "Requests waiting for a slot per route class.");
+        for (Bulkhead b : Bulkheads.getInstance().getBulkheads()) {
+            sample(sb, "askhub_bulkhead_queued{class=\"" + b.getName() + "\"}", b.getQueued());
+        }
+        header(sb, "askhub_bulkhead_shed_total", "counter", "Requests answered 503 by admission control (queue_full: shed on arrival, timeout: gave up waiting).");
+        for (Bulkhead b : Bulkheads.getInstance().getBulkheads()) {
+            sample(sb, "askhub_bulkhead_shed_total{class=\"" + b.getName() + "\",reason=\"queue_full\"}", b.getShedQueueFull());
+            sample(sb, "askhub_bulkhead_shed_total{class=\"" + b.getName() + "\",reason=\"timeout\"}", b.getShedTimeout());
+        }
+        header(sb, "askhub_ratelimit_rejected_total", "counter", "Requests answered 429, by the bucket that was empty.");
+        for (RateLimiter.Limit l : RateLimiter.getInstance().getLimits()) {
+            String route = "{route=\"" + escape(l.getRoute()) + "\",key=\"";
+            sample(sb, "askhub_ratelimit_rejected_total" + route + "user\"}", l.getRejectedUser());
+            sample(sb, "askhub_ratelimit_rejected_total" + route + "ip\"}", l.getRejectedIp());
+        }
+        header(sb, "askhub_ratelimit_buckets", "gauge", "Token buckets held, full ones aside.");
+        for (RateLimiter.Limit l : RateLimiter.getInstance().getLimits()) {
+            String route = "{route=\"" + escape(l.getRoute()) + "\",key=\"";
+            sample(sb, "askhub_ratelimit_buckets" + route + "user\"}", l.getUserBuckets());
+            sample(sb, "askhub_ratelimit_buckets" + route + "ip\"}", l.getIpBuckets());
+        }
+        SessionTokens tokens = SessionTokens.getInstance();
+        header(sb, "askhub_auth_rejected_total", "counter", "Session tokens refused with 401, by reason.");
+        sample(sb, "askhub_auth_rejected_total{reason=\"signature\"}", tokens.getRejectedSignature());
+        sample(sb, "askhub_auth_rejected_total{reason=\"expired\"}", tokens.getRejectedExpired());
+        sample(sb, "askhub_auth_rejected_total{reason=\"revoked\"}", tokens.getRejectedRevoked());
+        header(sb, "askhub_auth_revoked_users", "gauge", "Users whose earlier tokens are revoked.");
+        sample(sb, "askhub_auth_revoked_users", tokens.getRevokedCount());
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        header(sb, "askhub_password_hashing_active", "gauge", "Password hashes being computed.");
+        sample(sb, "askhub_password_hashing_active", hasher.getActive());
+        header(sb, "askhub_password_hashing_queued", "gauge", "Logins and registrations waiting for a hashing thread.");
+        sample(sb, "askhub_password_hashing_queued", hasher.getQueued());
+        header(sb, "askhub_password_hashing_shed_total", "counter", "Logins and registrations answered 503 (queue_full: pool saturated, deadline: expired while queued).");
+        sample(sb, "askhub_password_hashing_shed_total{reason=\"queue_full\"}", hasher.getRejected());
+        sample(sb, "askhub_password_hashing_shed_total{reason=\"deadline\"}", hasher.getExpired());
+        header(sb, "askhub_password_rehashed_total", "counter", "Stored hashes upgraded to the current format at login.");
+        sample(sb, "askhub_password_rehashed_total", hasher.getRehashed());
+        LastLoginWriter lastLogin = LastLoginWriter.getInstance();
+        header(sb, "askhub_last_login_pending", "gauge", "Logins waiting for the batched users.last_login write.");
+        sample(sb, "askhub_last_login_pending", lastLogin.getPending());
+        header(sb, "askhub_last_login_written_total", "counter", "users.last_login rows written by the write-behind.");
+        sample(sb, "askhub_last_login_written_total", lastLogin.getWritten());
+        header(sb, "askhub_last_login_dropped_total", "counter", "Logins not recorded because the write-behind was full.");
+        sample(sb, "askhub_last_login_dropped_total", lastLogin.getDropped());
+        UserAvailability availability = UserAvailability.getInstance();
+        header(sb, "askhub_availability_checks_total", "counter", "Username/email availability checks by how they were answered.");
+        sample(sb, "askhub_availability_checks_total{answer=\"filter_negative\"}", availability.getFilterNegatives());
+        sample(sb, "askhub_availability_checks_total{answer=\"confirmed_taken\"}", availability.getConfirmedTaken());
+        sample(sb, "askhub_availability_checks_total{answer=\"false_positive\"}", availability.getFalsePositives());
+        sample(sb, "askhub_availability_checks_total{answer=\"unfiltered\"}", availability.getUnfiltered());
+        header(sb, "askhub_availability_filter_entries", "gauge", "Usernames in the availability Bloom filter.");
+        sample(sb, "askhub_availability_filter_entries", availability.getEntries());
+        header(sb, "askhub_availability_filter_fpp", "gauge", "Estimated false positive rate of the availability filter at its current fill.");
+        sample(sb, "askhub_availability_filter_fpp", availability.getEstimatedFalsePositiveRate());
+        header(sb, "askhub_cache_stale_served_total", "counter", "Responses served from the last-known-good cache.");
+        for (StaleCache<?> c : StaleCache.getAll()) {
+            sample(sb, "askhub_cache_stale_served_total{cache=\"" + escape(c.getName()) + "\"}", c.getStaleServed());
+        }
+        header(sb, "askhub_cache_unavailable_total", "counter", "Requests failed with 503 for lack of a usable fallback.");
+        for (StaleCache<?> c : StaleCache.getAll()) {
+            sample(sb, "askhub_cache_unavailable_total{cache=\"" + escape(c.getName()) + "\"}", c.getUnavailable());
+        }
+        header(sb, "askhub_singleflight_loads_total", "counter", "Coalesced DAO reads: leader ran the query, follower shared its result.");
+        for (SingleFlight<?, ?> f : SingleFlight.getAll()) {
+            String flight = "{name=\"" + escape(f.getName()) + "\",role=\"";
+            sample(sb, "askhub_singleflight_loads_total" + flight + "leader\"}", f.getLeaders());
+            sample(sb, "askhub_singleflight_loads_total" + flight + "follower\"}", f.getFollowers());
+        }
+        header(sb, "askhub_dao_async_active", "gauge", "Async DAO reads running.");
+        sample(sb, "askhub_dao_async_active", DaoExecutor.getActive());
+        header(sb, "askhub_dao_async_queued", "gauge", "Async DAO reads waiting for a thread.");
+        sample(sb, "askhub_dao_async_queued", DaoExecutor.getQueued());
+        header(sb, "askhub_dao_async_rejected_total", "counter", "Async DAO reads refused because the queue was full.");
+        sample(sb, "askhub_dao_async_rejected_total", DaoExecutor.getRejected());
+        header(sb, "askhub_cache_entries", "gauge", "Last-known-good entries held.");
+        for (StaleCache<?> c : StaleCache.getAll()) {
+            sample(sb, "askhub_cache_entries{cache=\"" + escape(c.getName()) + "\"}", c.size());
+        }
+        ConnectionLimiter limiter = DatabaseConfig.getConnectionLimiter();
+        if (limiter != null) {
+            header(sb, "askhub_db_connections_limit", "gauge", "Database connections allowed open at once.");
+            sample(sb, "askhub_db_connections_limit", limiter.getMaxConnections());
+            header(sb, "askhub_db_connections_in_use", "gauge", "Database connections currently open.");
+            sample(sb, "askhub_db_connections_in_use", limiter.getInUse());
+            header(sb, "askhub_db_connections_waiting", "gauge", "Callers waiting for a database connection.");
+            sample(sb, "askhub_db_connections_waiting", limiter.getWaiting());
+            header(sb, "askhub_db_connection_timeouts_total", "counter", "Callers that gave up waiting for a database connection.");
+            sample(sb, "askhub_db_connection_timeouts_total", limiter.getTimeouts());
+        }
+    }
+    private static void writeJvm(StringBuilder sb) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        header(sb, "jvm_memory_used_bytes", "gauge", "Used memory by area.");
+        sample(sb, "jvm_memory_used_bytes{area=\"heap\"}", heap.getUsed());
+        sample(sb, "jvm_memory_used_bytes{area=\"nonheap\"}", nonHeap.getUsed());
+        header(sb, "jvm_memory_committed_bytes", "gauge", "Committed memory by area.");
+        sample(sb, "jvm_memory_committed_bytes{area=\"heap\"}", heap.getCommitted());
+        sample(sb, "jvm_memory_committed_bytes{area=\"nonheap\"}", nonHeap.getCommitted());
+        header(sb, "jvm_memory_max_bytes", "gauge", "Max heap size.");
+        sample(sb, "jvm_memory_max_bytes{area=\"heap\"}", heap.getMax());
+        header(sb, "jvm_gc_collection_seconds", "summary", "Time spent in each garbage collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String label = "{gc=\"" + escape(gc.getName()) + "\"}";
+            sample(sb, "jvm_gc_collection_seconds_count" + label, gc.getCollectionCount());
+            sample(sb, "jvm_gc_collection_seconds_sum" + label, gc.getCollectionTime() / 1000.0);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        header(sb, "jvm_threads_current", "gauge", "Live threads.");
+        sample(sb, "jvm_threads_current", threads.getThreadCount());
+        header(sb, "jvm_threads_peak", "gauge", "Peak live threads.");
+        sample(sb, "jvm_threads_peak", threads.getPeakThreadCount());
+        header(sb, "process_uptime_seconds", "gauge", "JVM uptime.");
+        sample(sb, "process_uptime_seconds", ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+    private static String labels(RouteMetrics r) {
+        return "method=\"" + r.getMethod() + "\",route=\"" + escape(r.getRoute()) + "\"";
+    }
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+    private static void sample(StringBuilder sb, String series, double value) {
+        sb.append(series).append(' ');
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
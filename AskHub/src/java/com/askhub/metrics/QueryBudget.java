@@ -0,0 +1,170 @@
+package com.askhub.metrics;
+import com.askhub.logging.AppLog;
+import com.askhub.tracing.Tracer;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Counts the statements issued during one unit of work (an API request or a
+ * Swing event) and flags scopes that exceed their budget or repeat the same
+ * fingerprint, the usual shape of an N+1 loop.
+ *
+ * Settings: -Daskhub.sql.budget (default 10 statements per scope),
+ * -Daskhub.sql.repeatThreshold (default 2 identical fingerprints) and
+ * -Daskhub.sql.budget.strict=true to throw instead of warn, for tests.
+ * Per-scope budgets can be set with setBudget("GET /api/questions/{id}", n).
+ */
+public class QueryBudget {
+    private static final int DEFAULT_BUDGET = Integer.getInteger("askhub.sql.budget", 10);
+    private static final int REPEAT_THRESHOLD = Integer.getInteger("askhub.sql.repeatThreshold", 2);
+    private static volatile boolean strict = Boolean.getBoolean("askhub.sql.budget.strict");
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final ConcurrentMap<String, Integer> BUDGETS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, ScopeStats> STATS = new ConcurrentHashMap<>();
+    // Opens a scope on this thread; a scope already open stays in charge and this returns null.
+    public static Scope open(String name) {
+        if (CURRENT.get() != null) return null;
+        Scope scope = new Scope(name);
+        CURRENT.set(scope);
+        return scope;
+    }
+    // For request threads: a scope left behind by a request that never reached its after-hook is dropped.
+    public static Scope openRequest(String name) {
+        CURRENT.remove();
+        return open(name);
+    }
+    public static Scope current() {
+        return CURRENT.get();
+    }
+    // Counts this thread's statements into a scope opened elsewhere, e.g. by the request a
+    // worker thread runs a query for; returns the scope to put back afterwards
+    public static Scope attach(Scope scope) {
+        Scope previous = CURRENT.get();
+        if (scope == null) CURRENT.remove(); else CURRENT.set(scope);
+        return previous;
+    }
+    public static void setBudget(String name, int statements) {
+        BUDGETS.put(name, statements);
+    }
+    public static void setStrict(boolean value) {
+        strict = value;
+    }
+    public static Collection<ScopeStats> getStats() {
+        return STATS.values();
+    }
+    static void recordQuery(String fingerprint) {
+        Scope scope = CURRENT.get();
+        if (scope != null) scope.record(fingerprint);
+    }
+    // Every Swing event that touches the database becomes a scope named after its source.
+    public static void installSwing() {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueue() {
+            @Override
+            protected void dispatchEvent(AWTEvent event) {
+                Scope scope = open(swingScopeName(event));
+                try {
+                    super.dispatchEvent(event);
+                } finally {
+                    if (scope != null) scope.close();
+                }
+            }
+        });
+    }
+    private static String swingScopeName(AWTEvent event) {
+        String source = event.getSource() != null ? event.getSource().getClass().getSimpleName() : "?";
+        if (event instanceof ActionEvent) {
+            return "swing " + source + " " + ((ActionEvent) event).getActionCommand();
+        }
+        return "swing " + event.getClass().getSimpleName() + " " + source;
+    }
+    public static class Scope implements AutoCloseable {
+        private final String name;
+        private final Thread owner = Thread.currentThread();
+        private final Map<String, Integer> fingerprints = new HashMap<>();
+        private int count;
+        private boolean closed;
+        Scope(String name) {
+            this.name = name;
+        }
+        synchronized void record(String fingerprint) {
+            count++;
+            fingerprints.merge(fingerprint, 1, Integer::sum);
+        }
+        public String getName() {
+            return name;
+        }
+        public synchronized int getQueryCount() {
+            return count;
+        }
+        // fingerprints issued at least repeatThreshold times, with their counts
+        public synchronized Map<String, Integer> getSuspects() {
+            Map<String, Integer> suspects = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> e : fingerprints.entrySet()) {
+                if (e.getValue() >= REPEAT_THRESHOLD) suspects.put(e.getKey(), e.getValue());
+            }
+            return suspects;
+        }
+        // May run on a different thread than open() when the request finished asynchronously.
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            if (owner == Thread.currentThread() && CURRENT.get() == this) CURRENT.remove();
+            if (count == 0) return;
+            int budget = BUDGETS.getOrDefault(name, DEFAULT_BUDGET);
+            Map<String, Integer> suspects = getSuspects();
+            ScopeStats stats = STATS.computeIfAbsent(name, ScopeStats::new);
+            stats.scopes.increment();
+            stats.queries.add(count);
+            if (count > budget) stats.overBudget.increment();
+            if (!suspects.isEmpty()) stats.suspects.increment();
+            if (count > budget || !suspects.isEmpty()) {
+                String message = name + " issued " + count + " statements (budget " + budget + ")"
+                        + (suspects.isEmpty() ? "" : ", repeated: " + suspects) + Tracer.logSuffix();
+                if (strict) throw new QueryBudgetExceededException(message);
+                AppLog.warn("sql.budget", message);
+            }
+        }
+    }
+    public static class ScopeStats {
+        private final String name;
+        private final LongAdder scopes = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final LongAdder suspects = new LongAdder();
+        ScopeStats(String name) {
+            this.name = name;
+        }
+        public String getName() {
+            return name;
+        }
+        public long getScopes() {
+            return scopes.sum();
+        }
+        public long getQueries() {
+            return queries.sum();
+        }
+        public long getOverBudget() {
+            return overBudget.sum();
+        }
+        public long getSuspects() {
+            return suspects.sum();
+        }
+    }
+    public static class QueryBudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        public QueryBudgetExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.askhub.metrics;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import com.askhub.logging.AppLog;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+/**
+ * Per-fingerprint SQL timings fed by the instrumented JDBC layer, plus the
+ * slow-query log. Threshold: -Daskhub.sql.slowMs (default 200).
+ */
+public class QueryStats {
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("askhub.sql.slowMs", 200));
+    private static final int MAX_FINGERPRINTS = 2000;
+    private static final int MAX_PARAM_LENGTH = 100;
+    private static QueryStats instance;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private QueryStats() {
+    }
+    public static synchronized QueryStats getInstance() {
+        if (instance == null) {
+            instance = new QueryStats();
+        }
+        return instance;
+    }
+    public void record(String sql, long elapsedNanos, Object[] params, boolean failed) {
+        String fingerprint = SqlFingerprint.of(sql);
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            if (entries.size() >= MAX_FINGERPRINTS) {
+                dropped.increment();
+            } else {
+                entry = entries.computeIfAbsent(fingerprint, Entry::new);
+            }
+        }
+        if (entry != null) entry.record(elapsedNanos, failed);
+        QueryBudget.recordQuery(fingerprint);
+        if (elapsedNanos >= SLOW_NANOS) {
+            AppLog.warn("sql.slow", "slow query " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms: "
+                    + sql.replaceAll("\\s+", " ").trim() + " params=" + formatParams(sql, params));
+        }
+    }
+    // sortBy: "total" (default), "count", "p99" or "max"
+    public List<Map<String, Object>> top(int limit, String sortBy) {
+        Comparator<Map<String, Object>> order = Comparator.comparing(m -> ((Number) m.get(sortKey(sortBy))).doubleValue());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            rows.add(e.snapshot());
+        }
+        rows.sort(order.reversed());
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+    public long getDroppedFingerprints() {
+        return dropped.sum();
+    }
+    public void reset() {
+        entries.clear();
+    }
+    private static String sortKey(String sortBy) {
+        if ("count".equals(sortBy)) return "count";
+        if ("p99".equals(sortBy)) return "p99Ms";
+        if ("max".equals(sortBy)) return "maxMs";
+        return "totalMs";
+    }
+    private static String formatParams(String sql, Object[] params) {
+        if (params == null || params.length == 0) return "[]";
+        // never log credentials
+        if (sql.toLowerCase().contains("password")) return "[redacted]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) sb.append(", ");
+            String value = String.valueOf(params[i]);
+            sb.append(value.length() > MAX_PARAM_LENGTH ? value.substring(0, MAX_PARAM_LENGTH) + "..." : value);
+        }
+        return sb.append(']').toString();
+    }
+    private static class Entry {
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram latencies = new Histogram(3);
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+        void record(long elapsedNanos, boolean failed) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+            count.increment();
+            if (failed) errors.increment();
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+            recorder.recordValue(micros);
+        }
+        synchronized Map<String, Object> snapshot() {
+            latencies.add(recorder.getIntervalHistogram());
+            long n = count.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("fingerprint", fingerprint);
+            row.put("count", n);
+            row.put("errors", errors.sum());
+            row.put("totalMs", totalMicros.sum() / 1000.0);
+            row.put("meanMs", n == 0 ? 0 : totalMicros.sum() / 1000.0 / n);
+            row.put("p99Ms", latencies.getValueAtPercentile(99) / 1000.0);
+            row.put("maxMs", maxMicros.get() / 1000.0);
+            return row;
+        }
+    }
+}
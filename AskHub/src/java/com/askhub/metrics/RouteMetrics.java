@@ -0,0 +1,81 @@
+package com.askhub.metrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+/**
+ * Counters and latency histogram for one route (method + path template).
+ * Request threads only touch LongAdders and a wait-free Recorder; the
+ * histogram window is rotated by whoever scrapes.
+ */
+public class RouteMetrics {
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private final String method;
+    private final String route;
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder durationMicros = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> deadlinesExceeded = new ConcurrentHashMap<>();
+    private final Recorder recorder = new Recorder(3);
+    private Histogram previous = new Histogram(3);
+    private Histogram current = new Histogram(3);
+    private long currentStart = System.nanoTime();
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+    void begin() {
+        inFlight.increment();
+    }
+    void end(int status, long elapsedNanos) {
+        inFlight.decrement();
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        recorder.recordValue(micros);
+        durationMicros.add(micros);
+        LongAdder counter = statuses.get(status);
+        if (counter == null) counter = statuses.computeIfAbsent(status, s -> new LongAdder());
+        counter.increment();
+    }
+    void deadlineExceeded(String phase) {
+        deadlinesExceeded.computeIfAbsent(phase, p -> new LongAdder()).increment();
+    }
+    // Latencies of the last one to two minutes, so percentiles follow current behaviour.
+    synchronized Histogram recentLatencies() {
+        long now = System.nanoTime();
+        current.add(recorder.getIntervalHistogram());
+        if (now - currentStart >= WINDOW_NANOS) {
+            previous = current;
+            current = new Histogram(3);
+            currentStart = now;
+        }
+        Histogram merged = previous.copy();
+        merged.add(current);
+        return merged;
+    }
+    public String getMethod() {
+        return method;
+    }
+    public String getRoute() {
+        return route;
+    }
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+    public long getCount() {
+        long total = 0;
+        for (LongAdder c : statuses.values()) total += c.sum();
+        return total;
+    }
+    public double getDurationSeconds() {
+        return durationMicros.sum() / 1e6;
+    }
+    public Map<Integer, LongAdder> getStatuses() {
+        return statuses;
+    }
+    // by phase: "queue" (expired before the handler ran) or "handler"
+    public Map<String, LongAdder> getDeadlinesExceeded() {
+        return deadlinesExceeded;
+    }
+}
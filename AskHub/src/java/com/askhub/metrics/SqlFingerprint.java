@@ -0,0 +1,66 @@
+package com.askhub.metrics;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+/**
+ * Normalizes SQL so statements that differ only in literals, whitespace or
+ * IN-list length aggregate together. DAO SQL is a fixed set of string
+ * literals, so results are cached by the original text.
+ */
+public class SqlFingerprint {
+    private static final int MAX_CACHED = 10000;
+    private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<>();
+    public static String of(String sql) {
+        String fingerprint = CACHE.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            if (CACHE.size() < MAX_CACHED) CACHE.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+    static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // quoted literal, with doubled or backslash-escaped quotes inside
+                int j = i + 1;
+                while (j < n) {
+                    char d = sql.charAt(j);
+                    if (d == '\\') {
+                        j += 2;
+                    } else if (d == c && j + 1 < n && sql.charAt(j + 1) == c) {
+                        j += 2;
+                    } else if (d == c) {
+                        break;
+                    } else {
+                        j++;
+                    }
+                }
+                sb.append('?');
+                i = j + 1;
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !isIdentifierChar(sb.charAt(sb.length() - 1)))) {
+                int j = i;
+                while (j < n && (Character.isDigit(sql.charAt(j)) || sql.charAt(j) == '.')) j++;
+                sb.append('?');
+                i = j;
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) i++;
+                if (sb.length() > 0) sb.append(' ');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return collapseLists(sb.toString().trim());
+    }
+    // "IN (?, ?, ?)" and multi-row "VALUES (?, ?), (?, ?)" become a single group
+    private static String collapseLists(String sql) {
+        return sql.replaceAll("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)", "(?+)")
+                .replaceAll("\\(\\?\\+\\)(\\s*,\\s*\\(\\?\\+\\))+", "(?+)");
+    }
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,17 @@
+package com.askhub.metrics.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+@Name("com.askhub.Cache")
+@Label("Cache Operation")
+@Category({"AskHub", "Cache"})
+@StackTrace(false)
+public class CacheEvent extends jdk.jfr.Event {
+    @Label("Cache")
+    public String cache;
+    @Label("Operation")
+    public String operation;
+    @Label("Key")
+    public String key;
+}
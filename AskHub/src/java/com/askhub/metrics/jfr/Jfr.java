@@ -0,0 +1,73 @@
+package com.askhub.metrics.jfr;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+/**
+ * Entry points for AskHub's Flight Recorder events. Events only cost a
+ * check of their enabled flag unless a recording with jfr/askhub.jfc (or
+ * the admin recording endpoint) has switched them on.
+ */
+public class Jfr {
+    public static final String PROFILE_RESOURCE = "/jfr/askhub.jfc";
+    private static final Map<String, IntSupplier> QUEUES = new ConcurrentHashMap<>();
+    private static Recording recording;
+    static {
+        FlightRecorder.addPeriodicEvent(QueueDepthEvent.class, () -> {
+            for (Map.Entry<String, IntSupplier> e : QUEUES.entrySet()) {
+                QueueDepthEvent event = new QueueDepthEvent();
+                event.queue = e.getKey();
+                event.depth = e.getValue().getAsInt();
+                event.commit();
+            }
+        });
+    }
+    // Sampled into QueueDepthEvent once per period while a recording is running.
+    public static void registerQueue(String name, IntSupplier depth) {
+        QUEUES.put(name, depth);
+    }
+    public static void cache(String cache, String operation, Object key) {
+        CacheEvent event = new CacheEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.operation = operation;
+            event.key = String.valueOf(key);
+            event.commit();
+        }
+    }
+    // In-process recording with the JDK default settings plus the AskHub profile.
+    public static synchronized boolean startRecording() throws IOException, ParseException {
+        if (recording != null) return false;
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader reader = new InputStreamReader(Jfr.class.getResourceAsStream(PROFILE_RESOURCE), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        recording = new Recording(settings);
+        recording.setName("askhub");
+        recording.start();
+        return true;
+    }
+    // Stops the running recording and returns the dump, or null if none was running.
+    public static synchronized Path stopRecording() throws IOException {
+        if (recording == null) return null;
+        Path file = Files.createTempFile("askhub-", ".jfr");
+        try {
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+        return file;
+    }
+}
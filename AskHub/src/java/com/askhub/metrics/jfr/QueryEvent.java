@@ -0,0 +1,27 @@
+package com.askhub.metrics.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+@Name("com.askhub.Query")
+@Label("DAO Query")
+@Description("One SQL statement, from execute until its result set is closed")
+@Category({"AskHub", "Database"})
+public class QueryEvent extends jdk.jfr.Event {
+    @Label("DAO Method")
+    public String daoMethod;
+    @Label("Fingerprint")
+    public String fingerprint;
+    @Label("Rows")
+    @Description("Rows read for queries, rows affected for updates")
+    public long rows;
+    @Label("Failed")
+    public boolean failed;
+    private transient boolean finished;
+    // false if the event was already ended, e.g. by both its result set and its statement
+    public boolean markFinished() {
+        if (finished) return false;
+        finished = true;
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package com.askhub.metrics.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+@Name("com.askhub.QueueDepth")
+@Label("Queue Depth")
+@Category({"AskHub", "Background Work"})
+@Period("1 s")
+@StackTrace(false)
+public class QueueDepthEvent extends jdk.jfr.Event {
+    @Label("Queue")
+    public String queue;
+    @Label("Depth")
+    public int depth;
+}
@@ -0,0 +1,21 @@
+package com.askhub.metrics.jfr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+@Name("com.askhub.Request")
+@Label("API Request")
+@Description("One HTTP request handled by ApiServer")
+@Category({"AskHub", "API"})
+@StackTrace(false)
+public class RequestEvent extends jdk.jfr.Event {
+    @Label("Method")
+    public String method;
+    @Label("Route")
+    public String route;
+    @Label("Path")
+    public String path;
+    @Label("Status")
+    public int status;
+}
@@ -7,6 +7,7 @@ public class Answer {
     private String content;
     private int voteCount;
     private boolean isAccepted;
+    private int commentCount;
     private Timestamp createdAt;
     private Timestamp updatedAt;
     private String username;
@@ -20,6 +21,20 @@ public class Answer {
         this.voteCount = 0;
         this.isAccepted = false;
     }
+    // Copy constructor; the author is copied too
+    public Answer(Answer other) {
+        this.id = other.id;
+        this.questionId = other.questionId;
+        this.userId = other.userId;
+        this.content = other.content;
+        this.voteCount = other.voteCount;
+        this.isAccepted = other.isAccepted;
+        this.commentCount = other.commentCount;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.username = other.username;
+        this.author = other.author != null ? new User(other.author) : null;
+    }
     public int getId() {
         return id;
     }
@@ -56,6 +71,12 @@ public class Answer {
     public void setAccepted(boolean accepted) {
         isAccepted = accepted;
     }
+    public int getCommentCount() {
+        return commentCount;
+    }
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
     public Timestamp getCreatedAt() {
         return createdAt;
     }
@@ -16,6 +16,16 @@ public class Comment {
         this.targetId = targetId;
         this.content = content;
     }
+    // Copy constructor
+    public Comment(Comment other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.targetType = other.targetType;
+        this.targetId = other.targetId;
+        this.content = other.content;
+        this.createdAt = other.createdAt;
+        this.username = other.username;
+    }
     public int getId() {
         return id;
     }
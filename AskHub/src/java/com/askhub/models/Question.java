@@ -10,6 +10,7 @@ public class Question {
     private int viewCount;
     private int voteCount;
     private int answerCount;
+    private int commentCount;
     private Timestamp createdAt;
     private Timestamp updatedAt;
     private String username;
@@ -27,6 +28,24 @@ public class Question {
         this.voteCount = 0;
         this.answerCount = 0;
     }
+    // Copy constructor; the author is copied too
+    public Question(Question other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.topicId = other.topicId;
+        this.title = other.title;
+        this.content = other.content;
+        this.status = other.status;
+        this.viewCount = other.viewCount;
+        this.voteCount = other.voteCount;
+        this.answerCount = other.answerCount;
+        this.commentCount = other.commentCount;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.username = other.username;
+        this.topicName = other.topicName;
+        this.author = other.author != null ? new User(other.author) : null;
+    }
     public int getId() {
         return id;
     }
@@ -81,6 +100,12 @@ public class Question {
     public void setAnswerCount(int answerCount) {
         this.answerCount = answerCount;
     }
+    public int getCommentCount() {
+        return commentCount;
+    }
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
     public Timestamp getCreatedAt() {
         return createdAt;
     }
@@ -15,6 +15,15 @@ public class Topic {
         this.slug = slug;
         this.questionCount = 0;
     }
+    // Copy constructor
+    public Topic(Topic other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.slug = other.slug;
+        this.questionCount = other.questionCount;
+        this.createdAt = other.createdAt;
+    }
     public int getId() {
         return id;
     }
@@ -25,6 +25,22 @@ public class User {
         this.reputation = 0;
         this.isActive = true;
     }
+    // Copy constructor
+    public User(User other) {
+        this.id = other.id;
+        this.username = other.username;
+        this.email = other.email;
+        this.password = other.password;
+        this.fullName = other.fullName;
+        this.role = other.role;
+        this.reputation = other.reputation;
+        this.avatarUrl = other.avatarUrl;
+        this.bio = other.bio;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.lastLogin = other.lastLogin;
+        this.isActive = other.isActive;
+    }
     public int getId() {
         return id;
     }
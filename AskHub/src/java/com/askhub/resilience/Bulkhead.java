@@ -0,0 +1,76 @@
+package com.askhub.resilience;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * A compartment of the request thread pool: at most maxConcurrent calls run
+ * at once and at most maxQueue more wait for a slot. A call arriving to a
+ * full queue is shed at once; a queued one gives up after queueTimeoutMillis
+ * or at its request Deadline, whichever comes first. Either way the caller
+ * must not run the work.
+ */
+public class Bulkhead {
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutMillis;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder shedQueueFull = new LongAdder();
+    private final LongAdder shedTimeout = new LongAdder();
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long queueTimeoutMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+    // Settings from -D<prefix>.maxConcurrent, .maxQueue, .queueTimeoutMs
+    public static Bulkhead fromSystemProperties(String name, String prefix, int maxConcurrent, int maxQueue) {
+        return new Bulkhead(name,
+                Integer.getInteger(prefix + ".maxConcurrent", maxConcurrent),
+                Integer.getInteger(prefix + ".maxQueue", maxQueue),
+                Long.getLong(prefix + ".queueTimeoutMs", 1000));
+    }
+    // false means shed: the caller must not run the work; true must be paired with release()
+    public boolean tryAcquire() throws InterruptedException {
+        if (permits.tryAcquire()) return true;
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            shedQueueFull.increment();
+            return false;
+        }
+        try {
+            long waitMillis = queueTimeoutMillis;
+            Deadline deadline = Deadline.current();
+            if (deadline != null) waitMillis = Math.min(waitMillis, Math.max(0, deadline.remainingMillis()));
+            if (permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) return true;
+            shedTimeout.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+    public void release() {
+        permits.release();
+    }
+    public String getName() {
+        return name;
+    }
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+    public int getQueued() {
+        return queued.get();
+    }
+    public long getShedQueueFull() {
+        return shedQueueFull.sum();
+    }
+    public long getShedTimeout() {
+        return shedTimeout.sum();
+    }
+}
@@ -0,0 +1,84 @@
+package com.askhub.resilience;
+import com.askhub.metrics.Metrics;
+import com.askhub.metrics.jfr.Jfr;
+import io.javalin.core.security.AccessManager;
+import io.javalin.core.security.RouteRole;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.ServiceUnavailableResponse;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+/**
+ * Admission control per route class, so an expensive admin listing or a burst
+ * of searches cannot take the threads the public feed needs. Each class has
+ * its own Bulkhead; a request its bulkhead sheds is answered 503 with
+ * Retry-After before its handler runs. Since handlers hold at most one
+ * connection at a time (the question page's parallel reads aside), a class's
+ * concurrency limit is also its share of the database connections.
+ *
+ * Classes: admin (/api/admin/*, the full user listing), search (GET with a
+ * search parameter), write (anything but GET) and read (the rest). Limits
+ * come from -Daskhub.bulkhead.<class>.maxConcurrent, .maxQueue and
+ * .queueTimeoutMs; -Daskhub.bulkhead=false turns admission control off.
+ * Routes outside /api, e.g. /metrics, are never shed.
+ */
+public class Bulkheads implements AccessManager {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("askhub.bulkhead", "true"));
+    private static Bulkheads instance;
+    private final Bulkhead read = create("read", 150, 100);
+    private final Bulkhead write = create("write", 40, 40);
+    private final Bulkhead search = create("search", 16, 16);
+    private final Bulkhead admin = create("admin", 4, 8);
+    private Bulkheads() {
+    }
+    public static synchronized Bulkheads getInstance() {
+        if (instance == null) {
+            instance = new Bulkheads();
+        }
+        return instance;
+    }
+    private static Bulkhead create(String name, int maxConcurrent, int maxQueue) {
+        Bulkhead bulkhead = Bulkhead.fromSystemProperties(name, "askhub.bulkhead." + name, maxConcurrent, maxQueue);
+        Jfr.registerQueue("bulkhead-" + name, bulkhead::getQueued);
+        return bulkhead;
+    }
+    @Override
+    public void manage(Handler handler, Context ctx, Set<RouteRole> routeRoles) throws Exception {
+        Bulkhead bulkhead = ENABLED ? classify(ctx) : null;
+        if (bulkhead == null) {
+            handler.handle(ctx);
+            return;
+        }
+        if (!bulkhead.tryAcquire()) {
+            ctx.header("Retry-After", "1");
+            throw new ServiceUnavailableResponse("overloaded");
+        }
+        boolean async = false;
+        try {
+            handler.handle(ctx);
+            // an async handler keeps its slot until its result is in
+            CompletableFuture<?> result = ctx.resultFuture();
+            if (result != null) {
+                async = true;
+                result.whenComplete((value, error) -> bulkhead.release());
+            }
+        } finally {
+            if (!async) bulkhead.release();
+        }
+    }
+    private Bulkhead classify(Context ctx) {
+        String route = Metrics.routeOf(ctx);
+        if (!route.startsWith("/api/")) return null;
+        boolean get = ctx.method().equals("GET");
+        if (route.startsWith("/api/admin/") || (get && route.equals("/api/users"))) return admin;
+        if (!get) return write;
+        String query = ctx.queryParam("search");
+        if (query != null && !query.isEmpty()) return search;
+        return read;
+    }
+    public Collection<Bulkhead> getBulkheads() {
+        return Arrays.asList(read, write, search, admin);
+    }
+}
@@ -0,0 +1,199 @@
+package com.askhub.resilience;
+import com.askhub.logging.AppLog;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Circuit breaker over a sliding time window of call outcomes. CLOSED lets
+ * every call through and trips to OPEN once the window holds at least
+ * minCalls outcomes and either the failure rate or the slow-call rate
+ * reaches its threshold. OPEN rejects calls without touching the resource
+ * until openMillis has passed; HALF_OPEN then admits probeCalls trial calls.
+ * All of them succeeding closes the breaker, any failure or slow call opens
+ * it again. Recording an outcome is lock-free; only state changes lock.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    private final String name;
+    private final int windowSeconds;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final double slowRateThreshold;
+    private final long slowNanos;
+    private final long openMillis;
+    private final int probeCalls;
+    private final Bucket[] buckets;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger probesIssued = new AtomicInteger();
+    private final AtomicInteger probesSucceeded = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final ThreadLocal<AtomicInteger> troubleOnThread = ThreadLocal.withInitial(AtomicInteger::new);
+    private volatile long openedAt;
+    public CircuitBreaker(String name, int windowSeconds, int minCalls, double failureRateThreshold,
+                          double slowRateThreshold, long slowMillis, long openMillis, int probeCalls) {
+        this.name = name;
+        this.windowSeconds = windowSeconds;
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowRateThreshold = slowRateThreshold;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        this.openMillis = openMillis;
+        this.probeCalls = probeCalls;
+        this.buckets = new Bucket[windowSeconds];
+        for (int i = 0; i < windowSeconds; i++) buckets[i] = new Bucket();
+    }
+    // Settings from -D<prefix>.windowSec, .minCalls, .failureRate, .slowRate, .slowMs, .openMs, .probes
+    public static CircuitBreaker fromSystemProperties(String name, String prefix) {
+        return new CircuitBreaker(name,
+                Integer.getInteger(prefix + ".windowSec", 10),
+                Integer.getInteger(prefix + ".minCalls", 20),
+                Double.parseDouble(System.getProperty(prefix + ".failureRate", "0.5")),
+                Double.parseDouble(System.getProperty(prefix + ".slowRate", "0.8")),
+                Long.getLong(prefix + ".slowMs", 2000),
+                Long.getLong(prefix + ".openMs", 10000),
+                Integer.getInteger(prefix + ".probes", 3));
+    }
+    // false means fail fast: the caller must not touch the resource
+    public boolean tryAcquire() {
+        State s = state.get();
+        if (s == State.CLOSED) return true;
+        if (s == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis || !halfOpen()) {
+                reject();
+                return false;
+            }
+        }
+        if (probesIssued.incrementAndGet() <= probeCalls) return true;
+        reject();
+        return false;
+    }
+    public void onSuccess(long elapsedNanos) {
+        record(elapsedNanos, false);
+    }
+    public void onFailure(long elapsedNanos) {
+        record(elapsedNanos, true);
+    }
+    private void record(long elapsedNanos, boolean failed) {
+        boolean slow = elapsedNanos >= slowNanos;
+        // a slow call still returned its result; only the slow-rate window counts it
+        if (failed) troubleOnThread.get().incrementAndGet();
+        State s = state.get();
+        if (s == State.HALF_OPEN) {
+            if (failed || slow) {
+                trip(State.HALF_OPEN, failed ? "probe failed" : "probe slow");
+            } else if (probesSucceeded.incrementAndGet() >= probeCalls) {
+                close();
+            }
+            return;
+        }
+        if (s == State.OPEN) return;
+        long second = System.currentTimeMillis() / 1000;
+        Bucket bucket = bucketFor(second);
+        bucket.calls.incrementAndGet();
+        if (failed) bucket.failures.incrementAndGet();
+        if (slow) bucket.slow.incrementAndGet();
+        if (failed || slow) evaluate(second);
+    }
+    private void evaluate(long second) {
+        int calls = 0, failures = 0, slow = 0;
+        for (Bucket b : buckets) {
+            if (second - b.second < windowSeconds) {
+                calls += b.calls.get();
+                failures += b.failures.get();
+                slow += b.slow.get();
+            }
+        }
+        if (calls < minCalls) return;
+        if (failures >= calls * failureRateThreshold) {
+            trip(State.CLOSED, failures + "/" + calls + " calls failed");
+        } else if (slow >= calls * slowRateThreshold) {
+            trip(State.CLOSED, slow + "/" + calls + " calls slower than " + TimeUnit.NANOSECONDS.toMillis(slowNanos) + "ms");
+        }
+    }
+    private Bucket bucketFor(long second) {
+        Bucket bucket = buckets[(int) (second % windowSeconds)];
+        if (bucket.second != second) {
+            synchronized (bucket) {
+                if (bucket.second != second) {
+                    bucket.calls.set(0);
+                    bucket.failures.set(0);
+                    bucket.slow.set(0);
+                    bucket.second = second;
+                }
+            }
+        }
+        return bucket;
+    }
+    private synchronized void trip(State from, String reason) {
+        if (state.get() != from) return;
+        openedAt = System.currentTimeMillis();
+        state.set(State.OPEN);
+        opened.increment();
+        AppLog.warn("breaker." + name, "OPEN: " + reason);
+    }
+    private synchronized boolean halfOpen() {
+        if (state.get() == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            probesIssued.set(0);
+            probesSucceeded.set(0);
+            state.set(State.HALF_OPEN);
+            return true;
+        }
+        return state.get() != State.OPEN;
+    }
+    private synchronized void close() {
+        if (state.get() != State.HALF_OPEN) return;
+        for (Bucket b : buckets) b.second = -1;
+        state.set(State.CLOSED);
+        AppLog.info("breaker." + name, "CLOSED after " + probeCalls + " successful probes");
+    }
+    private void reject() {
+        rejected.increment();
+        troubleOnThread.get().incrementAndGet();
+    }
+    // Failures and rejections seen so far on this thread. DAOs
+    // swallow SQLExceptions, so callers compare this before and after a load
+    // to tell an empty result from one cut short by the database.
+    public int troubleOnThisThread() {
+        return troubleOnThread.get().get();
+    }
+    // Trouble another thread ran into on this thread's behalf, e.g. in a shared load it waited on
+    public void noteTroubleOnThisThread() {
+        troubleOnThread.get().incrementAndGet();
+    }
+    // The counter behind troubleOnThisThread(), to hand to worker threads via swapTroubleCounter
+    public AtomicInteger troubleCounter() {
+        return troubleOnThread.get();
+    }
+    // Counts this thread's trouble into counter until the returned one is swapped back in,
+    // so the parallel parts of one load, run on worker threads, add up in one place
+    public AtomicInteger swapTroubleCounter(AtomicInteger counter) {
+        AtomicInteger previous = troubleOnThread.get();
+        troubleOnThread.set(counter);
+        return previous;
+    }
+    public String getName() {
+        return name;
+    }
+    public State getState() {
+        return state.get();
+    }
+    public long getRejected() {
+        return rejected.sum();
+    }
+    public long getOpened() {
+        return opened.sum();
+    }
+    // seconds until an OPEN breaker lets probes through, for Retry-After
+    public long retryAfterSeconds() {
+        long remaining = openMillis - (System.currentTimeMillis() - openedAt);
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining + 999));
+    }
+    private static class Bucket {
+        volatile long second = -1;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slow = new AtomicInteger();
+    }
+}
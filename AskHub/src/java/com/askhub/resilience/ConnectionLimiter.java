@@ -0,0 +1,80 @@
+package com.askhub.resilience;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Caps how many database connections are open at once. A caller waits for a
+ * permit for at most -Daskhub.db.acquireTimeoutMs (default 2000) or until
+ * its request Deadline, then fails with SQLTransientConnectionException. The
+ * permit is held until the connection is closed. This only matters once the
+ * request thread pool no longer bounds concurrency, i.e. with virtual
+ * threads.
+ */
+public class ConnectionLimiter {
+    private static final long ACQUIRE_TIMEOUT_MILLIS = Long.getLong("askhub.db.acquireTimeoutMs", 2000);
+    private final int maxConnections;
+    private final Semaphore permits;
+    private final LongAdder timeouts = new LongAdder();
+    public ConnectionLimiter(int maxConnections) {
+        this.maxConnections = maxConnections;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+    public void acquire() throws SQLException {
+        long waitMillis = ACQUIRE_TIMEOUT_MILLIS;
+        Deadline deadline = Deadline.current();
+        if (deadline != null) waitMillis = Math.min(waitMillis, Math.max(0, deadline.remainingMillis()));
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted waiting for a database connection", "08001", e);
+        }
+        if (!acquired) {
+            timeouts.increment();
+            if (deadline != null && deadline.isExpired()) deadline.markTimedOut();
+            throw new SQLTransientConnectionException("all " + maxConnections + " database connections busy", "08001");
+        }
+    }
+    public void release() {
+        permits.release();
+    }
+    // Hands the permit taken by acquire() to the connection; closing it gives the permit back once
+    public Connection releaseOnClose(Connection conn) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionLimiter.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            conn.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    public int getInUse() {
+        return maxConnections - permits.availablePermits();
+    }
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+}
@@ -0,0 +1,53 @@
+package com.askhub.resilience;
+/**
+ * Absolute point in time by which the current request must be done, held
+ * per thread so the JDBC layer can see it without threading it through the
+ * DAOs. Connection acquires and statements check it first and fail with
+ * SQLTimeoutException once it has passed; statements also get a query
+ * timeout no longer than the time left.
+ */
+public class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private final long expiresAtMillis;
+    private volatile boolean timedOut;
+    private Deadline(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+    // Makes a deadline current for this thread; pair with clear()
+    public static Deadline start(long expiresAtMillis) {
+        Deadline deadline = new Deadline(expiresAtMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+    // Makes an existing deadline current, for work done on a request's behalf on another thread
+    public static void attach(Deadline deadline) {
+        if (deadline == null) CURRENT.remove(); else CURRENT.set(deadline);
+    }
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+    public static void clear() {
+        CURRENT.remove();
+    }
+    // True when work on this thread was cut short by its deadline
+    public static boolean timedOut() {
+        Deadline deadline = CURRENT.get();
+        return deadline != null && deadline.timedOut;
+    }
+    public long remainingMillis() {
+        return expiresAtMillis - System.currentTimeMillis();
+    }
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+    // JDBC query timeouts are whole seconds; round up so they never fire before the deadline
+    public int queryTimeoutSeconds() {
+        return (int) Math.max(1, (remainingMillis() + 999) / 1000);
+    }
+    public void markTimedOut() {
+        timedOut = true;
+    }
+    public boolean hasTimedOut() {
+        return timedOut;
+    }
+}
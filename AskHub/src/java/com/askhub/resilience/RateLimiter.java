@@ -0,0 +1,183 @@
+package com.askhub.resilience;
+import com.askhub.auth.AuthFilter;
+import com.askhub.metrics.Metrics;
+import io.javalin.Javalin;
+import io.javalin.http.HttpResponseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Token buckets for the write endpoints and the availability check, one per
+ * client per route, checked in a before hook that answers 429 with
+ * Retry-After. A request must pass both the bucket of its signed-in user and
+ * the bucket of its IP address, the latter ipFactor times larger so several
+ * users behind one NAT fit.
+ *
+ * Each bucket is a single AtomicLong holding its theoretical arrival time
+ * (GCRA): taking a token is one CAS, with no lock and no allocation once the
+ * key is known. Buckets live in striped ConcurrentHashMaps; a sweeper drops
+ * buckets that have refilled completely, one stripe per tick, since a full
+ * bucket is the same as none.
+ *
+ * -Daskhub.ratelimit.routes overrides limits as "route=perSecond:burst",
+ * e.g. "POST /api/votes=5:20;POST /api/comments=0.5:5" (0 turns a route's
+ * limit off); -Daskhub.ratelimit.ipFactor (default 10),
+ * -Daskhub.ratelimit.sweepMs (default 1000) and -Daskhub.ratelimit=false.
+ */
+public class RateLimiter {
+    private static final long EPOCH = System.nanoTime();
+    private static final int STRIPES = 16;
+    private static RateLimiter instance;
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty("askhub.ratelimit", "true"));
+    private final Map<String, Limit> limits = new LinkedHashMap<>();
+    private ScheduledExecutorService sweeper;
+    private int nextStripe;
+    private RateLimiter() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("POST /api/votes", "5:20");
+        settings.put("DELETE /api/votes", "5:20");
+        settings.put("POST /api/comments", "1:10");
+        settings.put("POST /api/questions/{id}/answers", "0.5:5");
+        settings.put("POST /api/questions", "0.2:5");
+        // per keystroke while typing, but cheap; the limit is against enumerating accounts
+        settings.put("GET /api/users/availability", "5:30");
+        for (String entry : System.getProperty("askhub.ratelimit.routes", "").split(";")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq > 0) settings.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+        }
+        int ipFactor = Integer.getInteger("askhub.ratelimit.ipFactor", 10);
+        for (Map.Entry<String, String> e : settings.entrySet()) {
+            String[] parts = e.getValue().split(":");
+            double perSecond = Double.parseDouble(parts[0]);
+            int burst = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            if (perSecond > 0) limits.put(e.getKey(), new Limit(e.getKey(), perSecond, burst, ipFactor));
+        }
+    }
+    public static synchronized RateLimiter getInstance() {
+        if (instance == null) {
+            instance = new RateLimiter();
+        }
+        return instance;
+    }
+    // Installed after Metrics, whose before hook resolves the route template, and AuthFilter
+    public void install(Javalin app) {
+        if (!enabled) return;
+        app.before(ctx -> {
+            Integer userId = AuthFilter.userId(ctx);
+            long waitNanos = tryAcquire(ctx.method() + " " + Metrics.routeOf(ctx), userId != null ? userId.toString() : null, ctx.ip());
+            if (waitNanos > 0) {
+                ctx.header("Retry-After", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+                throw new HttpResponseException(429, "rate_limited", Collections.emptyMap());
+            }
+        });
+        startSweeper();
+    }
+    // Takes a token for the request; returns 0, or the nanoseconds until one is available
+    public long tryAcquire(String route, String userId, String ip) {
+        Limit limit = limits.get(route);
+        if (limit == null) return 0;
+        long now = System.nanoTime() - EPOCH;
+        long wait = ip != null ? limit.ips.acquire(ip, now) : 0;
+        if (wait > 0) {
+            limit.rejectedIp.increment();
+            return wait;
+        }
+        wait = userId != null ? limit.users.acquire(userId, now) : 0;
+        if (wait > 0) limit.rejectedUser.increment();
+        return wait;
+    }
+    private synchronized void startSweeper() {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "askhub-ratelimit-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Long.getLong("askhub.ratelimit.sweepMs", 1000);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+    private void sweep() {
+        int stripe = nextStripe;
+        nextStripe = (stripe + 1) % STRIPES;
+        long now = System.nanoTime() - EPOCH;
+        for (Limit limit : limits.values()) {
+            limit.users.evictFull(stripe, now);
+            limit.ips.evictFull(stripe, now);
+        }
+    }
+    public Collection<Limit> getLimits() {
+        return limits.values();
+    }
+    public static class Limit {
+        private final String route;
+        private final Buckets users;
+        private final Buckets ips;
+        private final LongAdder rejectedUser = new LongAdder();
+        private final LongAdder rejectedIp = new LongAdder();
+        Limit(String route, double perSecond, int burst, int ipFactor) {
+            this.route = route;
+            this.users = new Buckets(perSecond, burst);
+            this.ips = new Buckets(perSecond * ipFactor, burst * ipFactor);
+        }
+        public String getRoute() {
+            return route;
+        }
+        public long getRejectedUser() {
+            return rejectedUser.sum();
+        }
+        public long getRejectedIp() {
+            return rejectedIp.sum();
+        }
+        public int getUserBuckets() {
+            return users.size();
+        }
+        public int getIpBuckets() {
+            return ips.size();
+        }
+    }
+    private static class Buckets {
+        private final long intervalNanos;
+        private final long capacityNanos;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+        Buckets(double perSecond, int burst) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            this.capacityNanos = intervalNanos * Math.max(1, burst);
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new ConcurrentHashMap<>();
+        }
+        // The bucket holds arrival time tat: it is full when tat <= now and each token moves tat
+        // one interval on; a request that would push tat past now + capacity is refused.
+        long acquire(String key, long now) {
+            ConcurrentHashMap<String, AtomicLong> stripe = stripes[stripeOf(key)];
+            AtomicLong tat = stripe.get(key);
+            if (tat == null) tat = stripe.computeIfAbsent(key, k -> new AtomicLong());
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long over = next - now - capacityNanos;
+                if (over > 0) return over;
+                if (tat.compareAndSet(current, next)) return 0;
+            }
+        }
+        // A token taken between the check and the removal is forgotten, i.e. at most one extra
+        void evictFull(int stripe, long now) {
+            stripes[stripe].entrySet().removeIf(e -> e.getValue().get() <= now);
+        }
+        int size() {
+            int size = 0;
+            for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) size += stripe.size();
+            return size;
+        }
+        private static int stripeOf(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (STRIPES - 1);
+        }
+    }
+}
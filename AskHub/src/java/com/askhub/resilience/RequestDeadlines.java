@@ -0,0 +1,81 @@
+package com.askhub.resilience;
+import com.askhub.metrics.Metrics;
+import io.javalin.Javalin;
+import io.javalin.core.security.AccessManager;
+import io.javalin.core.security.RouteRole;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.ServiceUnavailableResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.jetty.server.Request;
+/**
+ * Per-route request deadlines, counted from when Jetty accepted the request
+ * so time spent queued for a thread is included. Installed as Javalin's
+ * AccessManager, the one hook that wraps every endpoint handler: a request
+ * whose deadline passed before its handler started is answered 503 without
+ * running it. install() adds the after hook that answers 504, instead of
+ * whatever partial result the DAOs returned, for a request whose statements
+ * were cut short by the deadline, unless a StaleCache already stood in for it.
+ *
+ * -Daskhub.deadline.defaultMs sets the budget (default 5000); per-route
+ * budgets come from -Daskhub.deadline.routes, e.g.
+ * "GET /api/questions=2000;POST /api/register=8000". 0 disables the deadline
+ * for a route; the streaming endpoints are exempt by default.
+ */
+public class RequestDeadlines implements AccessManager {
+    private static final String DEADLINE_ATTR = "deadline";
+    private static RequestDeadlines instance;
+    private final long defaultMillis = Long.getLong("askhub.deadline.defaultMs", 5000);
+    private final Map<String, Long> routeMillis = new HashMap<>();
+    private RequestDeadlines() {
+        routeMillis.put("GET /api/users", 0L);
+        routeMillis.put("GET /api/admin/export", 0L);
+        String routes = System.getProperty("askhub.deadline.routes", "");
+        for (String entry : routes.split(";")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq > 0) routeMillis.put(entry.substring(0, eq).trim(), Long.parseLong(entry.substring(eq + 1).trim()));
+        }
+    }
+    public static synchronized RequestDeadlines getInstance() {
+        if (instance == null) {
+            instance = new RequestDeadlines();
+        }
+        return instance;
+    }
+    @Override
+    public void manage(Handler handler, Context ctx, Set<RouteRole> routeRoles) throws Exception {
+        long budget = routeMillis.getOrDefault(ctx.method() + " " + Metrics.routeOf(ctx), defaultMillis);
+        if (budget <= 0) {
+            handler.handle(ctx);
+            return;
+        }
+        Deadline deadline = Deadline.start(arrivalMillis(ctx) + budget);
+        ctx.attribute(DEADLINE_ATTR, deadline);
+        try {
+            if (deadline.isExpired()) {
+                Metrics.recordDeadlineExceeded(ctx, "queue");
+                ctx.header("Retry-After", "1");
+                throw new ServiceUnavailableResponse("deadline_exceeded");
+            }
+            handler.handle(ctx);
+        } finally {
+            Deadline.clear();
+        }
+    }
+    // Judges the deadline in an after hook, which for handlers that finish asynchronously
+    // (ctx.future) runs once their result is in. Install before Metrics so it sees the 504.
+    public void install(Javalin app) {
+        app.after(ctx -> {
+            Deadline deadline = ctx.attribute(DEADLINE_ATTR);
+            if (deadline == null || !deadline.hasTimedOut()) return;
+            if (ctx.status() < 500 && !StaleCache.isStale(ctx)) ctx.status(504).json("deadline_exceeded");
+            Metrics.recordDeadlineExceeded(ctx, "handler");
+        });
+    }
+    private static long arrivalMillis(Context ctx) {
+        Request request = Request.getBaseRequest(ctx.req);
+        return request != null && request.getTimeStamp() > 0 ? request.getTimeStamp() : System.currentTimeMillis();
+    }
+}
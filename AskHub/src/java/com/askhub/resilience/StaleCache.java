@@ -0,0 +1,161 @@
+package com.askhub.resilience;
+import com.askhub.metrics.jfr.Jfr;
+import com.askhub.tracing.Span;
+import com.askhub.tracing.Tracer;
+import io.javalin.http.Context;
+import io.javalin.http.GatewayTimeoutResponse;
+import io.javalin.http.ServiceUnavailableResponse;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+/**
+ * Last-known-good responses for read endpoints. Every request still loads
+ * fresh data; the cache is only read when that load was rejected by the
+ * circuit breaker or ran into a database failure, in which case the previous
+ * value is served with "Warning: 110" and "Age" headers. Entries older than
+ * -Daskhub.cache.maxStaleSec (default 1h) are not served; without one the
+ * request fails with 503 and Retry-After rather than an empty result, or
+ * 504 when it was the request's own Deadline that cut the load short.
+ * remove() forgets a key whose data is gone (a deleted question), so it is
+ * never brought back as a stale response, not even by a load already running;
+ * clear() does the same for every key.
+ */
+public class StaleCache<V> {
+    private static final String STALE_ATTR = "cache.stale";
+    private static final long MAX_STALE_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("askhub.cache.maxStaleSec", 3600));
+    private static final Collection<StaleCache<?>> ALL = new CopyOnWriteArrayList<>();
+    private final String name;
+    private final int maxEntries;
+    private final CircuitBreaker breaker;
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private volatile long clearedAt;
+    public StaleCache(String name, int maxEntries, CircuitBreaker breaker) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.breaker = breaker;
+        ALL.add(this);
+    }
+    // A null load that hit no trouble is a real "not found" and forgets the key.
+    public V get(Context ctx, String key, Supplier<V> loader) {
+        try (Span span = Tracer.getInstance().startSpan("cache " + name)) {
+            long startedAt = System.currentTimeMillis();
+            int troubleBefore = breaker.troubleOnThisThread();
+            V value = loader.get();
+            return resolve(ctx, key, value, breaker.troubleOnThisThread() != troubleBefore, Deadline.current(), span, startedAt);
+        }
+    }
+    // get() for a load that completes on other threads (see DaoExecutor). Trouble is counted
+    // for this load alone: the request thread goes on to other requests meanwhile.
+    public CompletableFuture<V> getAsync(Context ctx, String key, Supplier<CompletableFuture<V>> loader) {
+        Tracer tracer = Tracer.getInstance();
+        Span span = tracer.startSpan("cache " + name);
+        long startedAt = System.currentTimeMillis();
+        Deadline deadline = Deadline.current();
+        AtomicInteger trouble = new AtomicInteger();
+        AtomicInteger previous = breaker.swapTroubleCounter(trouble);
+        CompletableFuture<V> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException | Error e) {
+            span.markError();
+            span.end();
+            throw e;
+        } finally {
+            breaker.swapTroubleCounter(previous);
+            tracer.detach(span);
+        }
+        return load.thenApply(value -> resolve(ctx, key, value, trouble.get() != 0, deadline, span, startedAt))
+                .whenComplete((value, error) -> span.end());
+    }
+    private V resolve(Context ctx, String key, V value, boolean troubled, Deadline deadline, Span span, long startedAt) {
+        boolean timedOut = deadline != null && deadline.hasTimedOut();
+        if (!troubled && !timedOut) {
+            span.setAttribute("cache.result", "fresh");
+            if (value == null) {
+                entries.remove(key);
+            } else {
+                put(key, value, startedAt);
+            }
+            return value;
+        }
+        Entry<V> last = entries.get(key);
+        long age = last != null && last.value != null ? System.currentTimeMillis() - last.storedAt : Long.MAX_VALUE;
+        if (age > MAX_STALE_MILLIS) {
+            span.setAttribute("cache.result", "unavailable").markError();
+            unavailable.increment();
+            Jfr.cache(name, "unavailable", key);
+            if (timedOut) throw new GatewayTimeoutResponse("deadline_exceeded");
+            ctx.header("Retry-After", String.valueOf(breaker.retryAfterSeconds()));
+            throw new ServiceUnavailableResponse("database_unavailable");
+        }
+        span.setAttribute("cache.result", "stale");
+        staleServed.increment();
+        Jfr.cache(name, "stale", key);
+        ctx.attribute(STALE_ATTR, true);
+        ctx.header("Warning", "110 - \"Response is Stale\"");
+        ctx.header("Age", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(age)));
+        return last.value;
+    }
+    // True once any StaleCache served this request from its fallback
+    public static boolean isStale(Context ctx) {
+        return Boolean.TRUE.equals(ctx.attribute(STALE_ATTR));
+    }
+    private void put(String key, V value, long loadStartedAt) {
+        Entry<V> previous = entries.get(key);
+        // a load that began before remove() may have read the data that is now gone
+        if (previous != null && previous.value == null && previous.storedAt >= loadStartedAt) return;
+        if (clearedAt >= loadStartedAt) return;
+        evictIfFull(key);
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+        Jfr.cache(name, "put", key);
+    }
+    // Leaves a tombstone rather than nothing, see put()
+    public void remove(String key) {
+        evictIfFull(key);
+        entries.put(key, new Entry<>(null, System.currentTimeMillis()));
+    }
+    // Forgets every entry, e.g. list pages that may show a deleted question
+    public void clear() {
+        clearedAt = System.currentTimeMillis();
+        entries.clear();
+    }
+    private void evictIfFull(String key) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            Iterator<String> it = entries.keySet().iterator();
+            if (it.hasNext()) entries.remove(it.next());
+        }
+    }
+    public static Collection<StaleCache<?>> getAll() {
+        return ALL;
+    }
+    public String getName() {
+        return name;
+    }
+    public int size() {
+        return entries.size();
+    }
+    public long getStaleServed() {
+        return staleServed.sum();
+    }
+    public long getUnavailable() {
+        return unavailable.sum();
+    }
+    private static class Entry<V> {
+        final V value;
+        final long storedAt;
+        Entry(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
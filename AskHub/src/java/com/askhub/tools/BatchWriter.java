@@ -0,0 +1,172 @@
+package com.askhub.tools;
+import com.askhub.utils.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+/**
+ * Feeds rows for one INSERT statement to a pool of writer threads as JDBC
+ * batches. Each writer owns one connection with foreign key checks relaxed
+ * for the session. Unique checks stay on, since INSERT IGNORE against the
+ * secondary UNIQUE keys (votes, usernames, emails) is what keeps a resumed or
+ * repeated import from duplicating rows. When a checkpoint is given, the
+ * highest source record covered by a contiguous run of committed batches is
+ * persisted so an interrupted job can resume without reloading committed rows.
+ */
+public class BatchWriter implements AutoCloseable {
+    private final String name;
+    private final String sql;
+    private final int batchSize;
+    private final Checkpoint checkpoint;
+    private final ExecutorService pool;
+    private final ThreadLocal<Connection> connection = new ThreadLocal<>();
+    private final List<Connection> openConnections = new ArrayList<>();
+    private final TreeMap<Long, Long> completedBatches = new TreeMap<>();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private List<Object[]> current;
+    private long currentMaxRecord;
+    private long nextSeq;
+    private long nextSeqToCommit;
+    private long committedRecord = -1;
+    private long lastCheckpointSave;
+    public BatchWriter(String name, String sql, int threads, int batchSize, Checkpoint checkpoint) {
+        this.name = name;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        this.checkpoint = checkpoint;
+        this.current = new ArrayList<>(batchSize);
+        // bounded queue + caller-runs keeps the parser from racing ahead of the database
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), r -> {
+                    Thread t = new Thread(r, "askhub-writer-" + name);
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    // record is the 1-based ordinal of the source record this row came from
+    public void add(Object[] row, long record) {
+        checkFailure();
+        current.add(row);
+        currentMaxRecord = record;
+        if (current.size() >= batchSize) {
+            submit();
+        }
+    }
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+    public void finish() {
+        if (!current.isEmpty()) {
+            submit();
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(name + ": waiting for writers, " + rowsWritten.get() + " rows so far");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + ": interrupted while flushing", e);
+        }
+        checkFailure();
+        synchronized (this) {
+            if (checkpoint != null && committedRecord >= 0) {
+                checkpoint.setCommitted(name, committedRecord);
+            }
+        }
+    }
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        synchronized (openConnections) {
+            for (Connection conn : openConnections) {
+                DatabaseConfig.closeConnection(conn);
+            }
+            openConnections.clear();
+        }
+    }
+    private void submit() {
+        final List<Object[]> batch = current;
+        final long seq = nextSeq++;
+        final long maxRecord = currentMaxRecord;
+        current = new ArrayList<>(batchSize);
+        pool.execute(() -> {
+            if (failure.get() != null) return;
+            try {
+                writeBatch(batch);
+                rowsWritten.addAndGet(batch.size());
+                batchCommitted(seq, maxRecord);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+    }
+    private void writeBatch(List<Object[]> batch) throws SQLException {
+        Connection conn = getConnection();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Object[] row : batch) {
+                for (int i = 0; i < row.length; i++) {
+                    stmt.setObject(i + 1, row[i]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+    private synchronized void batchCommitted(long seq, long maxRecord) {
+        completedBatches.put(seq, maxRecord);
+        Long record = null;
+        while (completedBatches.containsKey(nextSeqToCommit)) {
+            record = completedBatches.remove(nextSeqToCommit);
+            nextSeqToCommit++;
+        }
+        if (record != null) {
+            committedRecord = record;
+            long now = System.currentTimeMillis();
+            // at most one checkpoint write per second; finish() writes the final value
+            if (checkpoint != null && now - lastCheckpointSave >= 1000) {
+                checkpoint.setCommitted(name, record);
+                lastCheckpointSave = now;
+            }
+        }
+    }
+    private Connection getConnection() throws SQLException {
+        Connection conn = connection.get();
+        if (conn == null) {
+            conn = DatabaseConfig.getUrl().startsWith("jdbc:mysql")
+                    ? DatabaseConfig.getConnection("rewriteBatchedStatements=true")
+                    : DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+            if (DatabaseConfig.getUrl().startsWith("jdbc:mysql")) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET SESSION foreign_key_checks = 0");
+                }
+            }
+            connection.set(conn);
+            synchronized (openConnections) {
+                openConnections.add(conn);
+            }
+        }
+        return conn;
+    }
+    private void checkFailure() {
+        Exception e = failure.get();
+        if (e != null) {
+            throw new IllegalStateException(name + ": batch insert failed", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.askhub.tools;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+/**
+ * Progress file for resumable bulk jobs. Each named phase stores the last
+ * source record that is known to be committed, plus a done flag.
+ */
+public class Checkpoint {
+    private final Path file;
+    private final Properties props = new Properties();
+    public Checkpoint(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+            }
+        }
+    }
+    public synchronized long getCommitted(String phase) {
+        return Long.parseLong(props.getProperty(phase + ".committed", "0"));
+    }
+    public synchronized boolean isDone(String phase) {
+        return Boolean.parseBoolean(props.getProperty(phase + ".done", "false"));
+    }
+    public synchronized void setCommitted(String phase, long record) {
+        props.setProperty(phase + ".committed", String.valueOf(record));
+        save();
+    }
+    public synchronized void markDone(String phase) {
+        props.setProperty(phase + ".done", "true");
+        save();
+    }
+    private void save() {
+        // write-then-rename so a crash never leaves a truncated checkpoint
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "AskHub bulk job checkpoint");
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write checkpoint " + tmp, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.askhub.tools;
+import com.askhub.utils.DatabaseConfig;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+/**
+ * Streams AskHub tables as newline-delimited JSON. All tables are read inside
+ * one consistent-snapshot transaction through forward-only cursors with a
+ * bounded fetch size, so memory use does not depend on table size.
+ *
+ * Usage: DataExporter --out dir   (one table.ndjson.gz per table)
+ *        DataExporter --zip file  (one table.ndjson entry per table)
+ *        [--tables users,questions,...] [--include-secrets]
+ */
+public class DataExporter {
+    public static final List<String> TABLES = Collections.unmodifiableList(Arrays.asList(
+            "users", "topics", "questions", "answers", "comments", "votes", "notifications"));
+    private static final int FETCH_SIZE = 1000;
+    // never leaves the database unless explicitly requested (full backups)
+    private static final Set<String> SECRET_COLUMNS = new HashSet<>(Arrays.asList("users.password"));
+    private final List<String> tables;
+    private final boolean includeSecrets;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private boolean verbose;
+    public DataExporter(List<String> tables, boolean includeSecrets) {
+        for (String table : tables) {
+            if (!TABLES.contains(table)) throw new IllegalArgumentException("Unknown table: " + table);
+        }
+        this.tables = tables;
+        this.includeSecrets = includeSecrets;
+    }
+    public static void main(String[] args) throws Exception {
+        Path outDir = null;
+        Path zipFile = null;
+        List<String> tables = TABLES;
+        boolean includeSecrets = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out": outDir = Paths.get(args[++i]); break;
+                case "--zip": zipFile = Paths.get(args[++i]); break;
+                case "--tables": tables = Arrays.asList(args[++i].split(",")); break;
+                case "--include-secrets": includeSecrets = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if ((outDir == null) == (zipFile == null)) {
+            System.err.println("Usage: DataExporter (--out <dir> | --zip <file>) [--tables t1,t2] [--include-secrets]");
+            System.exit(2);
+        }
+        DataExporter exporter = new DataExporter(tables, includeSecrets);
+        exporter.verbose = true;
+        long started = System.currentTimeMillis();
+        if (zipFile != null) {
+            try (OutputStream out = Files.newOutputStream(zipFile)) {
+                exporter.writeZip(out);
+            }
+        } else {
+            exporter.writeGzipFiles(outDir);
+        }
+        System.out.println("Export finished in " + (System.currentTimeMillis() - started) / 1000 + "s");
+    }
+    public void writeZip(OutputStream out) throws SQLException, IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 1 << 16));
+        try (Connection conn = openSnapshot()) {
+            for (String table : tables) {
+                zip.putNextEntry(new ZipEntry(table + ".ndjson"));
+                long rows = writeTable(conn, table, zip);
+                zip.closeEntry();
+                if (verbose) System.out.println(table + ": " + rows + " rows");
+            }
+            conn.commit();
+        }
+        zip.finish();
+        zip.flush();
+    }
+    public void writeGzipFiles(Path dir) throws SQLException, IOException {
+        Files.createDirectories(dir);
+        try (Connection conn = openSnapshot()) {
+            for (String table : tables) {
+                try (OutputStream out = new GZIPOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(dir.resolve(table + ".ndjson.gz")), 1 << 16), 1 << 16)) {
+                    long rows = writeTable(conn, table, out);
+                    if (verbose) System.out.println(table + ": " + rows + " rows");
+                }
+            }
+            conn.commit();
+        }
+    }
+    private Connection openSnapshot() throws SQLException {
+        boolean mysql = DatabaseConfig.getUrl().startsWith("jdbc:mysql");
+        // useCursorFetch makes setFetchSize a real server-side cursor on MySQL
+        Connection conn = mysql ? DatabaseConfig.getConnection("useCursorFetch=true") : DatabaseConfig.getConnection();
+        try {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            if (mysql) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                }
+            }
+            return conn;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+    private long writeTable(Connection conn, String table, OutputStream out) throws SQLException, IOException {
+        long rows = 0;
+        // the generator must not close the shared stream (zip entries / gzip file)
+        JsonGenerator json = jsonFactory.createGenerator(new NonClosingOutputStream(out), JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM " + table + " ORDER BY id",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                String[] names = new String[columns + 1];
+                boolean[] skip = new boolean[columns + 1];
+                for (int i = 1; i <= columns; i++) {
+                    names[i] = meta.getColumnLabel(i).toLowerCase();
+                    skip[i] = !includeSecrets && SECRET_COLUMNS.contains(table + "." + names[i]);
+                }
+                while (rs.next()) {
+                    json.writeStartObject();
+                    for (int i = 1; i <= columns; i++) {
+                        if (skip[i]) continue;
+                        json.writeFieldName(names[i]);
+                        writeValue(json, rs, i, meta.getColumnType(i));
+                    }
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                    rows++;
+                }
+            }
+        } finally {
+            json.close();
+        }
+        return rows;
+    }
+    private static void writeValue(JsonGenerator json, ResultSet rs, int i, int type) throws SQLException, IOException {
+        switch (type) {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.BIGINT: {
+                long v = rs.getLong(i);
+                if (rs.wasNull()) json.writeNull(); else json.writeNumber(v);
+                break;
+            }
+            case Types.BIT:
+            case Types.BOOLEAN: {
+                boolean v = rs.getBoolean(i);
+                if (rs.wasNull()) json.writeNull(); else json.writeBoolean(v);
+                break;
+            }
+            case Types.TIMESTAMP:
+            case Types.DATE: {
+                Timestamp v = rs.getTimestamp(i);
+                if (v == null) json.writeNull(); else json.writeString(v.toInstant().toString());
+                break;
+            }
+            default: {
+                String v = rs.getString(i);
+                if (v == null) json.writeNull(); else json.writeString(v);
+            }
+        }
+    }
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
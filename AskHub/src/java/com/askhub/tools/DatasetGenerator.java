@@ -0,0 +1,335 @@
+package com.askhub.tools;
+import com.askhub.utils.DatabaseConfig;
+import com.askhub.utils.PasswordUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Fills an AskHub database with a synthetic, reproducible dataset for capacity
+ * testing: power-law answer/vote/comment counts, a few hot topics, long
+ * megathreads and a large notification backlog. Every entity draws from its
+ * own seeded random stream, so the same seed yields the same data regardless
+ * of thread count (timestamps are relative to the time of the run).
+ * Denormalized counters are written consistently with the generated rows.
+ *
+ * Usage: DatasetGenerator [--embedded ./data/askhub] [--seed 42] [--users 10000]
+ *        [--topics 50] [--questions 100000] [--megathreads 5] [--megathread-answers 5000]
+ *        [--notifications 1000000] [--threads 4] [--batch-size 1000]
+ *
+ * Every generated user has the password "password".
+ */
+public class DatasetGenerator {
+    public static final String PASSWORD = "password";
+    private static final long SPAN_MILLIS = TimeUnit.DAYS.toMillis(730);
+    private static final int CHUNK = 1000;
+    private static final String[] WORDS = ("java sql index query thread lock cache latency deadlock pool connection " +
+            "transaction commit rollback vote answer question topic notification swing javalin jackson json mysql " +
+            "table row column join order limit offset cursor batch insert update delete timeout retry error " +
+            "exception stack heap memory garbage collector profile benchmark throughput request response server").split(" ");
+    private static final String[] NOTIFICATION_TYPES = {"NEW_ANSWER", "NEW_COMMENT", "VOTE", "ACCEPTED_ANSWER"};
+    private final long seed;
+    private final int users;
+    private final int topics;
+    private final int questions;
+    private final int megathreads;
+    private final int megathreadAnswers;
+    private final int notifications;
+    private final int threads;
+    private final int batchSize;
+    private final long baseTime = System.currentTimeMillis() - SPAN_MILLIS;
+    private final AtomicLong rows = new AtomicLong();
+    private int[] firstAnswerId;
+    private String passwordHash;
+    public DatasetGenerator(long seed, int users, int topics, int questions, int megathreads, int megathreadAnswers,
+                            int notifications, int threads, int batchSize) {
+        this.seed = seed;
+        this.users = users;
+        this.topics = topics;
+        this.questions = questions;
+        this.megathreads = Math.min(megathreads, questions);
+        this.megathreadAnswers = megathreadAnswers;
+        this.notifications = notifications;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        if (opts.containsKey("embedded")) {
+            EmbeddedDatabase.configure(opts.get("embedded"));
+            EmbeddedDatabase.createSchema();
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                Long.parseLong(opts.getOrDefault("seed", "42")),
+                Integer.parseInt(opts.getOrDefault("users", "10000")),
+                Integer.parseInt(opts.getOrDefault("topics", "50")),
+                Integer.parseInt(opts.getOrDefault("questions", "100000")),
+                Integer.parseInt(opts.getOrDefault("megathreads", "5")),
+                Integer.parseInt(opts.getOrDefault("megathread-answers", "5000")),
+                Integer.parseInt(opts.getOrDefault("notifications", "1000000")),
+                Integer.parseInt(opts.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(opts.getOrDefault("batch-size", "1000")));
+        long started = System.currentTimeMillis();
+        generator.run();
+        System.out.println("Generated " + generator.rows.get() + " rows in " + (System.currentTimeMillis() - started) / 1000 + "s");
+    }
+    public void run() throws Exception {
+        passwordHash = PasswordUtil.hashPassword(PASSWORD);
+        setReferentialIntegrity(false);
+        try {
+            phase("users", users, this::generateUsers);
+            phase("topics", topics, this::generateTopics);
+            planAnswers();
+            AtomicIntegerArray topicCounts = new AtomicIntegerArray(topics + 1);
+            phase("questions", questions, (sink, from, to) -> generateQuestions(sink, from, to, topicCounts));
+            phase("notifications", notifications, this::generateNotifications);
+            updateTopicCounts(topicCounts);
+            restartIdentities();
+        } finally {
+            setReferentialIntegrity(true);
+        }
+    }
+    private void generateUsers(Sink sink, int from, int to) throws SQLException {
+        String sql = "INSERT INTO users (id, username, email, password, full_name, reputation, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        for (int id = from; id < to; id++) {
+            SplittableRandom rng = rng(1, id);
+            sink.add(sql, id, "user" + id, "user" + id + "@example.test", passwordHash, "User " + id,
+                    powerLaw(rng, 1, 100000, 1.1) - 1, time(rng.nextDouble() * 0.5));
+        }
+    }
+    private void generateTopics(Sink sink, int from, int to) throws SQLException {
+        String sql = "INSERT INTO topics (id, name, description, slug) VALUES (?, ?, ?, ?)";
+        for (int id = from; id < to; id++) {
+            String name = WORDS[(id - 1) % WORDS.length] + "-" + id;
+            sink.add(sql, id, name, "Generated topic " + id, name);
+        }
+    }
+    // Answer ids are explicit so comments and votes can target them from any thread;
+    // a prefix sum over the per-question answer counts gives each question its id range.
+    private void planAnswers() {
+        firstAnswerId = new int[questions + 2];
+        int next = 1;
+        for (int q = 1; q <= questions; q++) {
+            firstAnswerId[q] = next;
+            next += answerCount(q);
+        }
+        firstAnswerId[questions + 1] = next;
+        System.out.println("answers: " + (next - 1) + " planned");
+    }
+    private int answerCount(int questionId) {
+        if (isMegathread(questionId)) return megathreadAnswers;
+        return powerLaw(rng(2, questionId), 1, 300, 1.6) - 1;
+    }
+    private boolean isMegathread(int questionId) {
+        return megathreads > 0 && questionId % Math.max(1, questions / megathreads) == 0
+                && questionId / Math.max(1, questions / megathreads) <= megathreads;
+    }
+    private void generateQuestions(Sink sink, int from, int to, AtomicIntegerArray topicCounts) throws SQLException {
+        String questionSql = "INSERT INTO questions (id, user_id, topic_id, title, content, status, view_count, vote_count, " +
+                "answer_count, comment_count, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String answerSql = "INSERT INTO answers (id, question_id, user_id, content, vote_count, is_accepted, comment_count, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int q = from; q < to; q++) {
+            SplittableRandom rng = rng(3, q);
+            int topicId = zipf(rng, topics);
+            topicCounts.incrementAndGet(topicId);
+            int answerTotal = firstAnswerId[q + 1] - firstAnswerId[q];
+            boolean accepted = answerTotal > 0 && rng.nextDouble() < 0.4;
+            Timestamp created = time(0.5 + 0.5 * (q - 1) / Math.max(1, questions));
+            int questionVotes = generateVotes(sink, rng, "QUESTION", q, created);
+            int questionComments = generateComments(sink, rng, "QUESTION", q, created);
+            sink.add(questionSql, q, zipf(rng, users), topicId, text(rng, 6, 14), text(rng, 30, 200),
+                    accepted ? "ANSWERED" : "OPEN", powerLaw(rng, 1, 1000000, 1.2) + questionVotes * 10, questionVotes,
+                    answerTotal, questionComments, created, created);
+            for (int i = 0; i < answerTotal; i++) {
+                int answerId = firstAnswerId[q] + i;
+                SplittableRandom arng = rng(4, answerId);
+                Timestamp answered = new Timestamp(created.getTime() + (long) (arng.nextDouble() * TimeUnit.DAYS.toMillis(30)));
+                int answerVotes = generateVotes(sink, arng, "ANSWER", answerId, answered);
+                int answerComments = generateComments(sink, arng, "ANSWER", answerId, answered);
+                sink.add(answerSql, answerId, q, zipf(arng, users), text(arng, 20, 150), answerVotes,
+                        accepted && i == 0, answerComments, answered, answered);
+            }
+        }
+    }
+    // Returns the net vote count; voters are consecutive user ids so (user, target) stays unique.
+    private int generateVotes(Sink sink, SplittableRandom rng, String targetType, int targetId, Timestamp after) throws SQLException {
+        String sql = "INSERT INTO votes (user_id, target_type, target_id, vote_type, created_at) VALUES (?, ?, ?, ?, ?)";
+        int count = Math.min(powerLaw(rng, 1, 5000, 1.3) - 1, users - 1);
+        int firstVoter = rng.nextInt(users);
+        int net = 0;
+        for (int i = 0; i < count; i++) {
+            boolean up = rng.nextDouble() < 0.85;
+            net += up ? 1 : -1;
+            sink.add(sql, (firstVoter + i) % users + 1, targetType, targetId, up ? "UPVOTE" : "DOWNVOTE", after);
+        }
+        return net;
+    }
+    private int generateComments(Sink sink, SplittableRandom rng, String targetType, int targetId, Timestamp after) throws SQLException {
+        String sql = "INSERT INTO comments (user_id, target_type, target_id, content, created_at) VALUES (?, ?, ?, ?, ?)";
+        int count = powerLaw(rng, 1, 200, 1.8) - 1;
+        for (int i = 0; i < count; i++) {
+            sink.add(sql, zipf(rng, users), targetType, targetId, text(rng, 5, 40),
+                    new Timestamp(after.getTime() + i * 60000L));
+        }
+        return count;
+    }
+    private void generateNotifications(Sink sink, int from, int to) throws SQLException {
+        String sql = "INSERT INTO notifications (id, user_id, type, content, reference_type, reference_id, is_read, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int i = from; i < to; i++) {
+            SplittableRandom rng = rng(5, i);
+            String type = NOTIFICATION_TYPES[rng.nextInt(NOTIFICATION_TYPES.length)];
+            sink.add(sql, i, zipf(rng, users), type, "Generated " + type.toLowerCase() + " notification", "QUESTION",
+                    zipf(rng, questions), rng.nextDouble() < 0.7, time(0.5 + 0.5 * i / Math.max(1, notifications)));
+        }
+    }
+    private void updateTopicCounts(AtomicIntegerArray topicCounts) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE topics SET question_count = ? WHERE id = ?")) {
+            for (int t = 1; t <= topics; t++) {
+                stmt.setInt(1, topicCounts.get(t));
+                stmt.setInt(2, t);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    // MySQL moves AUTO_INCREMENT past explicit ids by itself; H2 identity columns must be told.
+    private void restartIdentities() throws SQLException {
+        if (!EmbeddedDatabase.isEmbedded()) return;
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String table : new String[]{"users", "topics", "questions", "answers", "notifications"}) {
+                stmt.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + ")");
+            }
+        }
+    }
+    // Runs body over ids 1..count in chunks spread across the writer threads.
+    private void phase(String name, int count, RangeTask body) throws Exception {
+        long started = System.currentTimeMillis();
+        long before = rows.get();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 1; from <= count; from += CHUNK) {
+                final int start = from;
+                final int end = Math.min(from + CHUNK, count + 1);
+                futures.add(pool.submit(() -> {
+                    try (Sink sink = new Sink()) {
+                        body.run(sink, start, end);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println(name + ": " + (rows.get() - before) + " rows in " + (System.currentTimeMillis() - started) + "ms");
+    }
+    private void setReferentialIntegrity(boolean enabled) throws SQLException {
+        if (!EmbeddedDatabase.isEmbedded()) return; // MySQL writers relax FK checks per session instead
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY " + (enabled ? "TRUE" : "FALSE"));
+        }
+    }
+    private SplittableRandom rng(int kind, long id) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + kind * 0xBF58476D1CE4E5B9L + id);
+    }
+    private Timestamp time(double fraction) {
+        return new Timestamp(baseTime + (long) (fraction * SPAN_MILLIS));
+    }
+    // Truncated Pareto sample in [min, max]; larger alpha means a steeper tail.
+    private static int powerLaw(SplittableRandom rng, int min, int max, double alpha) {
+        double u = rng.nextDouble();
+        double ratio = Math.pow((double) min / max, alpha);
+        return (int) Math.min(max, Math.floor(min * Math.pow(1 - u * (1 - ratio), -1 / alpha)));
+    }
+    // Id in 1..n where low ids are much more popular (hot topics, power users).
+    private static int zipf(SplittableRandom rng, int n) {
+        return Math.min(n, powerLaw(rng, 1, n + 1, 1.0));
+    }
+    private static String text(SplittableRandom rng, int minWords, int maxWords) {
+        int words = minWords + rng.nextInt(maxWords - minWords + 1);
+        StringBuilder sb = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rng.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+    private interface RangeTask {
+        void run(Sink sink, int from, int to) throws SQLException;
+    }
+    // One writer connection with a JDBC batch per statement, flushed every batchSize rows.
+    private class Sink implements AutoCloseable {
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        private final Map<String, Integer> pending = new LinkedHashMap<>();
+        Sink() throws SQLException {
+            boolean mysql = DatabaseConfig.getUrl().startsWith("jdbc:mysql");
+            conn = mysql ? DatabaseConfig.getConnection("rewriteBatchedStatements=true") : DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+            if (mysql) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SET SESSION foreign_key_checks = 0, unique_checks = 0");
+                }
+            }
+        }
+        void add(String sql, Object... values) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null) {
+                stmt = conn.prepareStatement(sql);
+                statements.put(sql, stmt);
+            }
+            for (int i = 0; i < values.length; i++) {
+                stmt.setObject(i + 1, values[i]);
+            }
+            stmt.addBatch();
+            int n = pending.getOrDefault(sql, 0) + 1;
+            if (n >= batchSize) {
+                stmt.executeBatch();
+                conn.commit();
+                rows.addAndGet(n);
+                n = 0;
+            }
+            pending.put(sql, n);
+        }
+        @Override
+        public void close() throws SQLException {
+            try {
+                for (Map.Entry<String, PreparedStatement> e : statements.entrySet()) {
+                    int n = pending.getOrDefault(e.getKey(), 0);
+                    if (n > 0) {
+                        e.getValue().executeBatch();
+                        rows.addAndGet(n);
+                    }
+                    e.getValue().close();
+                }
+                conn.commit();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.askhub.tools;
+import com.askhub.utils.DatabaseConfig;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * H2 in MySQL mode as a local stand-in for the AskHub database. configure()
+ * must run before DatabaseConfig is first used, since DatabaseConfig reads
+ * its settings once.
+ */
+public class EmbeddedDatabase {
+    private static final String SCHEMA_RESOURCE = "/db/schema-h2.sql";
+    // path may be a file path ("./data/askhub") or "mem:name" for an in-memory database
+    public static void configure(String path) {
+        System.setProperty("askhub.db.url", "jdbc:h2:" + path +
+                ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("askhub.db.user", "sa");
+        System.setProperty("askhub.db.password", "");
+        System.setProperty("askhub.db.driver", "org.h2.Driver");
+    }
+    public static boolean isEmbedded() {
+        return DatabaseConfig.getUrl().startsWith("jdbc:h2:");
+    }
+    public static void createSchema() throws SQLException, IOException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String sql : readStatements()) {
+                stmt.execute(sql);
+            }
+        }
+    }
+    private static List<String> readStatements() throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (InputStream in = EmbeddedDatabase.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) throw new IOException("Missing " + SCHEMA_RESOURCE + " on classpath");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            StringBuilder current = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().startsWith("--")) continue;
+                current.append(line).append('\n');
+                if (line.trim().endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    current.setLength(0);
+                }
+            }
+        }
+        return statements;
+    }
+}
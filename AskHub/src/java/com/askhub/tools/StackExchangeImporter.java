@@ -0,0 +1,408 @@
+package com.askhub.tools;
+import com.askhub.utils.DatabaseConfig;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+/**
+ * Command line bulk loader for Stack Exchange data dumps (Tags.xml, Users.xml,
+ * Posts.xml, Comments.xml, Votes.xml). Files are streamed with StAX, rows are
+ * written by parallel JDBC batch writers, counters are computed once at the
+ * end, and progress is checkpointed so a rerun resumes where it stopped.
+ *
+ * Usage: StackExchangeImporter --dir dumpDir [--threads 4] [--batch-size 1000]
+ *        [--id-offset 0] [--checkpoint dumpDir/.askhub-import.properties]
+ *
+ * Source ids are kept (plus the offset) so references need no lookup tables.
+ * Foreign key checks are disabled on the writer sessions; run it against an
+ * idle database.
+ */
+public class StackExchangeImporter {
+    // Source ids reserved for rows the dump does not provide
+    private static final int GHOST_USER_SOURCE_ID = -2;
+    private static final int FALLBACK_TOPIC_SOURCE_ID = -1;
+    private static final int COUNTER_CHUNK = 50000;
+    private final Path dir;
+    private final int threads;
+    private final int batchSize;
+    private final int idOffset;
+    private final Checkpoint checkpoint;
+    private final XMLInputFactory xmlFactory;
+    private final Map<String, Integer> topicIdsByTag = new ConcurrentHashMap<>();
+    private final BitSet questionIds = new BitSet();
+    private final BitSet answerIds = new BitSet();
+    private final BitSet acceptedAnswerIds = new BitSet();
+    public StackExchangeImporter(Path dir, int threads, int batchSize, int idOffset, Checkpoint checkpoint) {
+        this.dir = dir;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.idOffset = idOffset;
+        this.checkpoint = checkpoint;
+        this.xmlFactory = XMLInputFactory.newInstance();
+        xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    public static void main(String[] args) throws Exception {
+        Path dir = null;
+        Path checkpointFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = 1000;
+        int idOffset = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir": dir = Paths.get(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--batch-size": batchSize = Integer.parseInt(args[++i]); break;
+                case "--id-offset": idOffset = Integer.parseInt(args[++i]); break;
+                case "--checkpoint": checkpointFile = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (dir == null) {
+            System.err.println("Usage: StackExchangeImporter --dir <dumpDir> [--threads N] [--batch-size N] [--id-offset N] [--checkpoint file]");
+            System.exit(2);
+        }
+        if (checkpointFile == null) {
+            checkpointFile = dir.resolve(".askhub-import.properties");
+        }
+        long started = System.currentTimeMillis();
+        new StackExchangeImporter(dir, threads, batchSize, idOffset, new Checkpoint(checkpointFile)).run();
+        System.out.println("Import finished in " + (System.currentTimeMillis() - started) / 1000 + "s");
+    }
+    public void run() throws Exception {
+        insertPlaceholders();
+        ExecutorService parsers = Executors.newFixedThreadPool(2);
+        try {
+            // topics and users are independent of each other
+            waitAll(parsers.submit(() -> { importTags(); return null; }),
+                    parsers.submit(() -> { importUsers(); return null; }));
+            importPosts();
+            markAcceptedAnswers();
+            // comments and votes only need the post id sets built from Posts.xml
+            waitAll(parsers.submit(() -> { importComments(); return null; }),
+                    parsers.submit(() -> { importVotes(); return null; }));
+        } finally {
+            parsers.shutdownNow();
+        }
+        recomputeCounters();
+    }
+    private void insertPlaceholders() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION foreign_key_checks = 0");
+            stmt.executeUpdate("INSERT IGNORE INTO users (id, username, email, password, full_name, is_active) VALUES (" +
+                    id(GHOST_USER_SOURCE_ID) + ", 'se_ghost" + idOffset + "', 'ghost" + idOffset + "@import.askhub.local', '!', 'Deleted user', FALSE)");
+            stmt.executeUpdate("INSERT IGNORE INTO topics (id, name, description, slug) VALUES (" +
+                    id(FALLBACK_TOPIC_SOURCE_ID) + ", 'imported-" + idOffset + "', 'Imported posts without a known tag', 'imported-" + idOffset + "')");
+        }
+    }
+    private void importTags() throws Exception {
+        Path file = dir.resolve("Tags.xml");
+        if (!Files.exists(file)) return;
+        String phase = "topics";
+        boolean done = checkpoint.isDone(phase);
+        long skip = checkpoint.getCommitted(phase);
+        try (BatchWriter writer = new BatchWriter(phase,
+                "INSERT IGNORE INTO topics (id, name, description, slug) VALUES (?, ?, ?, ?)", threads, batchSize, checkpoint)) {
+            parse(file, (row, record) -> {
+                String tag = row.getAttributeValue(null, "TagName");
+                int topicId = id(Integer.parseInt(row.getAttributeValue(null, "Id")));
+                // the tag map is needed by Posts.xml even when the rows are already loaded
+                topicIdsByTag.put(tag, topicId);
+                if (done || record <= skip) return;
+                writer.add(new Object[]{topicId, truncate(tag, 100), null, truncate(tag.toLowerCase(), 100)}, record);
+            });
+            writer.finish();
+            report(phase, writer);
+        }
+        checkpoint.markDone(phase);
+    }
+    private void importUsers() throws Exception {
+        String phase = "users";
+        if (checkpoint.isDone(phase)) return;
+        long skip = checkpoint.getCommitted(phase);
+        try (BatchWriter writer = new BatchWriter(phase,
+                "INSERT IGNORE INTO users (id, username, email, password, full_name, reputation, bio, created_at, last_login) " +
+                "VALUES (?, ?, ?, '!', ?, ?, ?, ?, ?)", threads, batchSize, checkpoint)) {
+            parse(dir.resolve("Users.xml"), (row, record) -> {
+                if (record <= skip) return;
+                int sourceId = Integer.parseInt(row.getAttributeValue(null, "Id"));
+                String displayName = row.getAttributeValue(null, "DisplayName");
+                writer.add(new Object[]{
+                        id(sourceId),
+                        username(displayName, id(sourceId)),
+                        "se" + sourceId + "." + idOffset + "@import.askhub.local",
+                        truncate(displayName, 100),
+                        intAttr(row, "Reputation", 0),
+                        row.getAttributeValue(null, "AboutMe"),
+                        timestamp(row.getAttributeValue(null, "CreationDate")),
+                        timestamp(row.getAttributeValue(null, "LastAccessDate"))
+                }, record);
+            });
+            writer.finish();
+            report(phase, writer);
+        }
+        checkpoint.markDone(phase);
+    }
+    private void importPosts() throws Exception {
+        boolean done = checkpoint.isDone("posts");
+        long skip = Math.min(checkpoint.getCommitted("questions"), checkpoint.getCommitted("answers"));
+        try (BatchWriter questions = new BatchWriter("questions",
+                "INSERT IGNORE INTO questions (id, user_id, topic_id, title, content, status, view_count, vote_count, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", threads, batchSize, checkpoint);
+             BatchWriter answers = new BatchWriter("answers",
+                "INSERT IGNORE INTO answers (id, question_id, user_id, content, vote_count, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", threads, batchSize, checkpoint)) {
+            parse(dir.resolve("Posts.xml"), (row, record) -> {
+                String type = row.getAttributeValue(null, "PostTypeId");
+                int sourceId = Integer.parseInt(row.getAttributeValue(null, "Id"));
+                if ("1".equals(type)) {
+                    questionIds.set(sourceId);
+                    String accepted = row.getAttributeValue(null, "AcceptedAnswerId");
+                    if (accepted != null) acceptedAnswerIds.set(Integer.parseInt(accepted));
+                    if (done || record <= skip) return;
+                    String status = row.getAttributeValue(null, "ClosedDate") != null ? "CLOSED"
+                            : accepted != null ? "ANSWERED" : "OPEN";
+                    Timestamp created = timestamp(row.getAttributeValue(null, "CreationDate"));
+                    Timestamp edited = timestamp(row.getAttributeValue(null, "LastActivityDate"));
+                    questions.add(new Object[]{
+                            id(sourceId),
+                            id(intAttr(row, "OwnerUserId", GHOST_USER_SOURCE_ID)),
+                            topicFor(row.getAttributeValue(null, "Tags")),
+                            truncate(row.getAttributeValue(null, "Title"), 255),
+                            row.getAttributeValue(null, "Body"),
+                            status,
+                            intAttr(row, "ViewCount", 0),
+                            intAttr(row, "Score", 0),
+                            created,
+                            edited != null ? edited : created
+                    }, record);
+                } else if ("2".equals(type)) {
+                    answerIds.set(sourceId);
+                    if (done || record <= skip) return;
+                    Timestamp created = timestamp(row.getAttributeValue(null, "CreationDate"));
+                    Timestamp edited = timestamp(row.getAttributeValue(null, "LastActivityDate"));
+                    answers.add(new Object[]{
+                            id(sourceId),
+                            id(Integer.parseInt(row.getAttributeValue(null, "ParentId"))),
+                            id(intAttr(row, "OwnerUserId", GHOST_USER_SOURCE_ID)),
+                            row.getAttributeValue(null, "Body"),
+                            intAttr(row, "Score", 0),
+                            created,
+                            edited != null ? edited : created
+                    }, record);
+                }
+            });
+            questions.finish();
+            answers.finish();
+            report("questions", questions);
+            report("answers", answers);
+        }
+        checkpoint.markDone("posts");
+    }
+    private void markAcceptedAnswers() {
+        String phase = "accepted";
+        if (checkpoint.isDone(phase)) return;
+        long skip = checkpoint.getCommitted(phase);
+        try (BatchWriter writer = new BatchWriter(phase,
+                "UPDATE answers SET is_accepted = TRUE WHERE id = ?", threads, batchSize, checkpoint)) {
+            long record = 0;
+            for (int sourceId = acceptedAnswerIds.nextSetBit(0); sourceId >= 0; sourceId = acceptedAnswerIds.nextSetBit(sourceId + 1)) {
+                record++;
+                if (record <= skip || !answerIds.get(sourceId)) continue;
+                writer.add(new Object[]{id(sourceId)}, record);
+            }
+            writer.finish();
+            report(phase, writer);
+        }
+        checkpoint.markDone(phase);
+    }
+    private void importComments() throws Exception {
+        String phase = "comments";
+        if (checkpoint.isDone(phase)) return;
+        long skip = checkpoint.getCommitted(phase);
+        try (BatchWriter writer = new BatchWriter(phase,
+                "INSERT IGNORE INTO comments (id, user_id, target_type, target_id, content, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                threads, batchSize, checkpoint)) {
+            parse(dir.resolve("Comments.xml"), (row, record) -> {
+                if (record <= skip) return;
+                int postId = Integer.parseInt(row.getAttributeValue(null, "PostId"));
+                String targetType = targetType(postId);
+                if (targetType == null) return;
+                writer.add(new Object[]{
+                        id(Integer.parseInt(row.getAttributeValue(null, "Id"))),
+                        id(intAttr(row, "UserId", GHOST_USER_SOURCE_ID)),
+                        targetType,
+                        id(postId),
+                        row.getAttributeValue(null, "Text"),
+                        timestamp(row.getAttributeValue(null, "CreationDate"))
+                }, record);
+            });
+            writer.finish();
+            report(phase, writer);
+        }
+        checkpoint.markDone(phase);
+    }
+    private void importVotes() throws Exception {
+        Path file = dir.resolve("Votes.xml");
+        String phase = "votes";
+        if (!Files.exists(file) || checkpoint.isDone(phase)) return;
+        long skip = checkpoint.getCommitted(phase);
+        try (BatchWriter writer = new BatchWriter(phase,
+                "INSERT IGNORE INTO votes (user_id, target_type, target_id, vote_type, created_at) VALUES (?, ?, ?, ?, ?)",
+                threads, batchSize, checkpoint)) {
+            parse(file, (row, record) -> {
+                if (record <= skip) return;
+                String voteTypeId = row.getAttributeValue(null, "VoteTypeId");
+                String user = row.getAttributeValue(null, "UserId");
+                // public dumps anonymise up/down votes; those are already reflected in Score
+                if (user == null || !("2".equals(voteTypeId) || "3".equals(voteTypeId))) return;
+                int postId = Integer.parseInt(row.getAttributeValue(null, "PostId"));
+                String targetType = targetType(postId);
+                if (targetType == null) return;
+                writer.add(new Object[]{
+                        id(Integer.parseInt(user)),
+                        targetType,
+                        id(postId),
+                        "2".equals(voteTypeId) ? "UPVOTE" : "DOWNVOTE",
+                        timestamp(row.getAttributeValue(null, "CreationDate"))
+                }, record);
+            });
+            writer.finish();
+            report(phase, writer);
+        }
+        checkpoint.markDone(phase);
+    }
+    private void recomputeCounters() throws SQLException {
+        String phase = "counters";
+        if (checkpoint.isDone(phase)) return;
+        long started = System.currentTimeMillis();
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            // chunked by primary key so no statement locks the whole table
+            updateInChunks(conn, "questions",
+                    "UPDATE questions q JOIN (SELECT question_id, COUNT(*) AS c FROM answers " +
+                    "WHERE question_id BETWEEN ? AND ? AND deleted_at IS NULL GROUP BY question_id) x " +
+                    "ON x.question_id = q.id SET q.answer_count = x.c");
+            updateInChunks(conn, "questions",
+                    "UPDATE questions q JOIN (SELECT target_id, COUNT(*) AS c FROM comments " +
+                    "WHERE target_type = 'QUESTION' AND target_id BETWEEN ? AND ? GROUP BY target_id) x " +
+                    "ON x.target_id = q.id SET q.comment_count = x.c");
+            updateInChunks(conn, "answers",
+                    "UPDATE answers a JOIN (SELECT target_id, COUNT(*) AS c FROM comments " +
+                    "WHERE target_type = 'ANSWER' AND target_id BETWEEN ? AND ? GROUP BY target_id) x " +
+                    "ON x.target_id = a.id SET a.comment_count = x.c");
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE topics t JOIN (SELECT topic_id, COUNT(*) AS c FROM questions " +
+                        "WHERE deleted_at IS NULL GROUP BY topic_id) x ON x.topic_id = t.id SET t.question_count = x.c");
+            }
+        }
+        checkpoint.markDone(phase);
+        System.out.println("counters: recomputed in " + (System.currentTimeMillis() - started) / 1000 + "s");
+    }
+    private void updateInChunks(Connection conn, String table, String sql) throws SQLException {
+        long min;
+        long max;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM " + table)) {
+            if (!rs.next()) return;
+            min = rs.getLong(1);
+            max = rs.getLong(2);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (long from = min; from <= max; from += COUNTER_CHUNK) {
+                stmt.setLong(1, from);
+                stmt.setLong(2, from + COUNTER_CHUNK - 1);
+                stmt.executeUpdate();
+            }
+        }
+    }
+    private void parse(Path file, RowHandler handler) throws IOException, XMLStreamException {
+        long record = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 20)) {
+            XMLStreamReader reader = xmlFactory.createXMLStreamReader(in, "UTF-8");
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+                        handler.handle(reader, ++record);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+    private String targetType(int postId) {
+        if (questionIds.get(postId)) return "QUESTION";
+        if (answerIds.get(postId)) return "ANSWER";
+        return null;
+    }
+    private int topicFor(String tags) {
+        // Tags look like "<java><jdbc>"; the first tag becomes the topic
+        if (tags != null && tags.startsWith("<")) {
+            int end = tags.indexOf('>');
+            Integer topicId = end > 1 ? topicIdsByTag.get(tags.substring(1, end)) : null;
+            if (topicId != null) return topicId;
+        }
+        return id(FALLBACK_TOPIC_SOURCE_ID);
+    }
+    private int id(int sourceId) {
+        return sourceId + idOffset;
+    }
+    // Suffixed with the target id, which includes --id-offset, so a second dump's users
+    // cannot collide on UNIQUE(username) and be dropped by INSERT IGNORE
+    private static String username(String displayName, int userId) {
+        String base = displayName == null ? "user" : displayName.toLowerCase().replaceAll("[^a-z0-9]", "");
+        if (base.isEmpty()) base = "user";
+        String suffix = "_" + userId;
+        return truncate(base, 50 - suffix.length()) + suffix;
+    }
+    private static int intAttr(XMLStreamReader row, String name, int defaultValue) {
+        String v = row.getAttributeValue(null, name);
+        return v != null ? Integer.parseInt(v) : defaultValue;
+    }
+    private static Timestamp timestamp(String v) {
+        return v != null ? Timestamp.valueOf(v.replace('T', ' ')) : null;
+    }
+    private static String truncate(String v, int max) {
+        return v != null && v.length() > max ? v.substring(0, max) : v;
+    }
+    private static void report(String phase, BatchWriter writer) {
+        System.out.println(phase + ": " + writer.getRowsWritten() + " rows written");
+    }
+    private static void waitAll(Future<?>... futures) throws Exception {
+        List<Exception> errors = new ArrayList<>();
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                errors.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+        if (!errors.isEmpty()) throw errors.get(0);
+    }
+    private interface RowHandler {
+        void handle(XMLStreamReader row, long record);
+    }
+}
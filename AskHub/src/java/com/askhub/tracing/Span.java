@@ -0,0 +1,112 @@
+package com.askhub.tracing;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * One timed operation in a trace. Spans of unsampled traces carry ids for
+ * headers and logs but record nothing.
+ */
+public class Span implements AutoCloseable {
+    public static final Span NOOP = new Span(null, null, null, null, false);
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final boolean sampled;
+    private final Span parent;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private volatile String updatedName;
+    private long endEpochNanos;
+    private boolean error;
+    private boolean ended;
+    Span(String name, String traceId, String spanId, Span parent, boolean sampled) {
+        this(name, traceId, spanId, parent != null ? parent.spanId : null, parent, sampled);
+    }
+    Span(String name, String traceId, String spanId, String parentSpanId, Span parent, boolean sampled) {
+        this.name = name;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.parent = parent;
+        this.sampled = sampled;
+        this.startNanos = System.nanoTime();
+        this.startEpochNanos = System.currentTimeMillis() * 1000000L;
+    }
+    public Span setAttribute(String key, Object value) {
+        if (sampled) {
+            synchronized (this) {
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+    public Span setName(String name) {
+        this.updatedName = name;
+        return this;
+    }
+    public Span setError(Throwable t) {
+        if (sampled) {
+            synchronized (this) {
+                error = true;
+                attributes.put("exception.type", t.getClass().getName());
+                attributes.put("exception.message", String.valueOf(t.getMessage()));
+            }
+        }
+        return this;
+    }
+    public void markError() {
+        if (!sampled) return;
+        synchronized (this) {
+            error = true;
+        }
+    }
+    // Ends the span, exports it if sampled and makes its parent current again.
+    public void end() {
+        if (this == NOOP) return;
+        synchronized (this) {
+            if (ended) return;
+            ended = true;
+            endEpochNanos = startEpochNanos + (System.nanoTime() - startNanos);
+        }
+        Tracer.getInstance().ended(this);
+    }
+    @Override
+    public void close() {
+        end();
+    }
+    public String getName() {
+        return updatedName != null ? updatedName : name;
+    }
+    public String getTraceId() {
+        return traceId;
+    }
+    public String getSpanId() {
+        return spanId;
+    }
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+    public boolean isSampled() {
+        return sampled;
+    }
+    Span getParent() {
+        return parent;
+    }
+    long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+    synchronized long getEndEpochNanos() {
+        return endEpochNanos;
+    }
+    synchronized boolean isError() {
+        return error;
+    }
+    synchronized Map<String, Object> getAttributes() {
+        return new LinkedHashMap<>(attributes);
+    }
+    // W3C trace context header value
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+}
@@ -0,0 +1,142 @@
+package com.askhub.tracing;
+import com.askhub.logging.AppLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * Batches finished spans on a background thread and ships them as OTLP/JSON
+ * trace requests, either appended to a local file (one request per line) or
+ * POSTed to an OTLP/HTTP collector. Spans are dropped, not queued without
+ * bound, when the exporter falls behind.
+ */
+public abstract class SpanExporter {
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int BATCH_SIZE = 512;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final BlockingQueue<Span> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    static SpanExporter fromSystemProperties() {
+        String type = System.getProperty("askhub.trace.exporter", "none");
+        if ("file".equals(type)) return new FileExporter(System.getProperty("askhub.trace.file", "traces.jsonl")).start();
+        if ("otlp".equals(type)) return new OtlpHttpExporter(System.getProperty("askhub.trace.otlpEndpoint", "http://localhost:4318/v1/traces")).start();
+        return null;
+    }
+    void export(Span span) {
+        if (!queue.offer(span)) dropped.incrementAndGet();
+    }
+    long getDropped() {
+        return dropped.get();
+    }
+    protected abstract void write(byte[] otlpJson) throws IOException;
+    SpanExporter start() {
+        Thread t = new Thread(this::run, "askhub-span-exporter");
+        t.setDaemon(true);
+        t.start();
+        return this;
+    }
+    private void run() {
+        List<Span> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                Span first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(MAPPER.writeValueAsBytes(toOtlp(batch)));
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                dropped.addAndGet(batch.size());
+                AppLog.error("SpanExporter.export", e);
+            }
+            batch.clear();
+        }
+    }
+    private static Map<String, Object> toOtlp(List<Span> spans) {
+        List<Object> out = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("traceId", span.getTraceId());
+            s.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) s.put("parentSpanId", span.getParentSpanId());
+            s.put("name", span.getName());
+            s.put("kind", span.getParent() == null ? 2 : 1); // SERVER for roots, INTERNAL otherwise
+            s.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+            s.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+            List<Object> attributes = new ArrayList<>();
+            for (Map.Entry<String, Object> a : span.getAttributes().entrySet()) {
+                attributes.add(attribute(a.getKey(), a.getValue()));
+            }
+            s.put("attributes", attributes);
+            s.put("status", Collections.singletonMap("code", span.isError() ? 2 : 1));
+            out.add(s);
+        }
+        Map<String, Object> scopeSpans = new LinkedHashMap<>();
+        scopeSpans.put("scope", Collections.singletonMap("name", "com.askhub.tracing"));
+        scopeSpans.put("spans", out);
+        Map<String, Object> resourceSpans = new LinkedHashMap<>();
+        resourceSpans.put("resource", Collections.singletonMap("attributes",
+                Collections.singletonList(attribute("service.name", "askhub"))));
+        resourceSpans.put("scopeSpans", Collections.singletonList(scopeSpans));
+        return Collections.singletonMap("resourceSpans", Collections.singletonList(resourceSpans));
+    }
+    private static Map<String, Object> attribute(String key, Object value) {
+        Map<String, Object> a = new LinkedHashMap<>();
+        a.put("key", key);
+        if (value instanceof Integer || value instanceof Long) {
+            a.put("value", Collections.singletonMap("intValue", String.valueOf(value)));
+        } else if (value instanceof Boolean) {
+            a.put("value", Collections.singletonMap("boolValue", value));
+        } else {
+            a.put("value", Collections.singletonMap("stringValue", String.valueOf(value)));
+        }
+        return a;
+    }
+    static class FileExporter extends SpanExporter {
+        private final String path;
+        FileExporter(String path) {
+            this.path = path;
+        }
+        @Override
+        protected void write(byte[] otlpJson) throws IOException {
+            try (OutputStream out = new FileOutputStream(path, true)) {
+                out.write(otlpJson);
+                out.write('\n');
+            }
+        }
+    }
+    static class OtlpHttpExporter extends SpanExporter {
+        private final String endpoint;
+        OtlpHttpExporter(String endpoint) {
+            this.endpoint = endpoint;
+        }
+        @Override
+        protected void write(byte[] otlpJson) throws IOException {
+            HttpURLConnection conn = (HttpURLConnection) new URL(endpoint).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(5000);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setFixedLengthStreamingMode(otlpJson.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(otlpJson);
+            }
+            int status = conn.getResponseCode();
+            conn.getInputStream().close();
+            if (status >= 300) throw new IOException("OTLP collector returned " + status);
+        }
+    }
+}
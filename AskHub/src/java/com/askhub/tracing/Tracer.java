@@ -0,0 +1,169 @@
+package com.askhub.tracing;
+import com.askhub.metrics.Metrics;
+import io.javalin.Javalin;
+import io.javalin.core.security.RouteRole;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * In-process tracing: a root span per API request, child spans for DAO
+ * statements, with the current span kept in a thread-local and carried into
+ * worker threads by wrap().
+ *
+ * Settings: -Daskhub.trace.sampleRate (default 0.1),
+ * -Daskhub.trace.exporter=none|file|otlp (default none),
+ * -Daskhub.trace.file (default traces.jsonl),
+ * -Daskhub.trace.otlpEndpoint (default http://localhost:4318/v1/traces),
+ * -Daskhub.trace.forcedPerSecond: traces per second a caller's traceparent
+ * may force to be sampled (default 10); past that the sample rate decides.
+ */
+public class Tracer {
+    private static final String SPAN_ATTR = "tracing.span";
+    private static Tracer instance;
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final double sampleRate = Double.parseDouble(System.getProperty("askhub.trace.sampleRate", "0.1"));
+    private final SpanExporter exporter = SpanExporter.fromSystemProperties();
+    private final int forcedPerSecond = Integer.getInteger("askhub.trace.forcedPerSecond", 10);
+    private long forcedSecond;
+    private int forcedCount;
+    private Tracer() {
+    }
+    public static synchronized Tracer getInstance() {
+        if (instance == null) {
+            instance = new Tracer();
+        }
+        return instance;
+    }
+    // Root span per request; installed after Metrics so the route template is known.
+    public void install(Javalin app) {
+        app.before(ctx -> {
+            Span span = startTrace(ctx.method() + " " + Metrics.routeOf(ctx), ctx.header("traceparent"));
+            span.setAttribute("http.method", ctx.method());
+            span.setAttribute("http.target", ctx.path());
+            ctx.header("X-Trace-Id", span.getTraceId());
+            ctx.header("traceparent", span.traceparent());
+            ctx.attribute(SPAN_ATTR, span);
+        });
+        app.after(ctx -> {
+            Span span = ctx.attribute(SPAN_ATTR);
+            if (span == null) return;
+            span.setAttribute("http.status_code", ctx.status());
+            if (ctx.status() >= 500) span.markError();
+            span.end();
+        });
+    }
+    // Wraps each handler (access manager). A handler that hands its response to ctx.future has its
+    // after hooks, and so the span's end, run on whichever thread completes it; the request
+    // thread drops the span here instead of carrying it into its next task.
+    public void manage(Handler handler, Context ctx, Set<RouteRole> routeRoles) throws Exception {
+        try {
+            handler.handle(ctx);
+        } finally {
+            if (ctx.resultFuture() != null) current.remove();
+        }
+    }
+    // Starts a trace, continuing the caller's if a valid traceparent header was sent.
+    public Span startTrace(String name, String traceparent) {
+        String traceId = null;
+        String parentSpanId = null;
+        boolean sampled;
+        if (traceparent != null && traceparent.length() == 55 && traceparent.startsWith("00-")) {
+            traceId = traceparent.substring(3, 35);
+            parentSpanId = traceparent.substring(36, 52);
+            // any client can set the flag, and a sampled trace pays a stack walk per statement
+            sampled = traceparent.endsWith("1")
+                    && (allowForced() || ThreadLocalRandom.current().nextDouble() < sampleRate);
+        } else {
+            sampled = ThreadLocalRandom.current().nextDouble() < sampleRate;
+        }
+        if (traceId == null) traceId = randomHex(32);
+        Span span = new Span(name, traceId, randomHex(16), parentSpanId, null, sampled && exporter != null);
+        current.set(span);
+        return span;
+    }
+    // Child of the current span; a no-op when there is no sampled trace on this thread.
+    public Span startSpan(String name) {
+        Span parent = current.get();
+        if (parent == null || !parent.isSampled()) return Span.NOOP;
+        Span span = new Span(name, parent.getTraceId(), randomHex(16), parent, true);
+        current.set(span);
+        return span;
+    }
+    public Span currentSpan() {
+        return current.get();
+    }
+    public String currentTraceId() {
+        Span span = current.get();
+        return span != null ? span.getTraceId() : null;
+    }
+    public boolean isRecording() {
+        Span span = current.get();
+        return span != null && span.isSampled();
+    }
+    // Runs the task with the caller's span as current, for work handed to another thread.
+    public Runnable wrap(Runnable task) {
+        Span captured = current.get();
+        if (captured == null) return task;
+        return () -> {
+            Span previous = current.get();
+            current.set(captured);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+    public <T> Callable<T> wrap(Callable<T> task) {
+        Span captured = current.get();
+        if (captured == null) return task;
+        return () -> {
+            Span previous = current.get();
+            current.set(captured);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+    // For a span that will be ended on another thread: this thread carries on under its parent
+    public void detach(Span span) {
+        if (current.get() == span) restore(span.getParent());
+    }
+    void ended(Span span) {
+        if (current.get() == span) restore(span.getParent());
+        if (span.isSampled()) exporter.export(span);
+    }
+    // For log lines: " trace=<id>" when the thread is inside a trace, "" otherwise
+    public static String logSuffix() {
+        String traceId = getInstance().currentTraceId();
+        return traceId != null ? " trace=" + traceId : "";
+    }
+    public long getDroppedSpans() {
+        return exporter != null ? exporter.getDropped() : 0;
+    }
+    private synchronized boolean allowForced() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        if (second != forcedSecond) {
+            forcedSecond = second;
+            forcedCount = 0;
+        }
+        return forcedCount++ < forcedPerSecond;
+    }
+    private void restore(Span span) {
+        if (span == null) current.remove(); else current.set(span);
+    }
+    private static String randomHex(int length) {
+        ThreadLocalRandom rng = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            String part = Long.toHexString(rng.nextLong());
+            for (int i = part.length(); i < 16; i++) sb.append('0');
+            sb.append(part);
+        }
+        return sb.substring(0, length);
+    }
+}
@@ -1,6 +1,8 @@
 package com.askhub.ui;
+import com.askhub.auth.PasswordHasher;
 import com.askhub.dao.UserDAO;
 import com.askhub.models.User;
+import com.askhub.utils.PasswordUtil;
 import com.askhub.utils.SessionManager;
 import javax.swing.*;
 import java.awt.*;
@@ -95,7 +97,34 @@ public class LoginFrame extends JFrame {
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
-        User user = userDAO.authenticate(username, password);
+        // the password check takes a noticeable fraction of a second, so not on the EDT
+        loginButton.setEnabled(false);
+        SwingWorker<User, Void> worker = new SwingWorker<User, Void>() {
+            @Override
+            protected User doInBackground() throws Exception {
+                User user = userDAO.authenticate(username, password);
+                if (user != null && PasswordUtil.needsRehash(user.getPassword())) {
+                    int userId = user.getId();
+                    String storedHash = user.getPassword();
+                    PasswordHasher.getInstance().rehash(password, hash -> userDAO.updatePassword(userId, storedHash, hash));
+                }
+                return user;
+            }
+            @Override
+            protected void done() {
+                loginButton.setEnabled(true);
+                User user = null;
+                try {
+                    user = get();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+                onLoginResult(user);
+            }
+        };
+        worker.execute();
+    }
+    private void onLoginResult(User user) {
         if (user != null) {
             SessionManager.getInstance().login(user);
             JOptionPane.showMessageDialog(this,
@@ -43,6 +43,10 @@ public class QuestionDetailFrame extends JFrame {
         questionDAO.incrementViewCount(questionId);
         answers = answerDAO.getAnswersByQuestion(questionId);
         lastAnswerCount = answers.size();
+        lastCommentCount = question.getCommentCount();
+        for (Answer answer : answers) {
+            lastCommentCount += answer.getCommentCount();
+        }
         initComponents();
         startAutoRefresh();
         addWindowListener(new WindowAdapter() {
@@ -150,7 +154,7 @@ public class QuestionDetailFrame extends JFrame {
         contentPanel.add(contentArea, BorderLayout.SOUTH);
         panel.add(votePanel, BorderLayout.WEST);
         panel.add(contentPanel, BorderLayout.CENTER);
-        JPanel questionCommentsPanel = createCommentsPanel("QUESTION", question.getId());
+        JPanel questionCommentsPanel = createCommentsPanel("QUESTION", question.getId(), question.getCommentCount());
         panel.add(questionCommentsPanel, BorderLayout.SOUTH);
         return panel;
     }
@@ -241,42 +245,38 @@ public class QuestionDetailFrame extends JFrame {
         contentPanel.add(authorPanel, BorderLayout.SOUTH);
         panel.add(votePanel, BorderLayout.WEST);
         panel.add(contentPanel, BorderLayout.CENTER);
-        JPanel answerCommentsPanel = createCommentsPanel("ANSWER", answer.getId());
+        JPanel answerCommentsPanel = createCommentsPanel("ANSWER", answer.getId(), answer.getCommentCount());
         panel.add(answerCommentsPanel, BorderLayout.SOUTH);
         return panel;
     }
-    private JPanel createCommentsPanel(String targetType, int targetId) {
+    private JPanel createCommentsPanel(String targetType, int targetId, int commentCount) {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.setBackground(new Color(250, 250, 250));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        List<Comment> comments = commentDAO.getCommentsByTarget(targetType, targetId);
-        JLabel commentsLabel = new JLabel(comments.size() + " Bình luận");
+        JLabel commentsLabel = new JLabel(commentCount + " Bình luận");
         commentsLabel.setFont(new Font("Arial", Font.BOLD, 12));
         commentsLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
         panel.add(commentsLabel);
         panel.add(Box.createVerticalStrut(5));
-        for (Comment comment : comments) {
-            JPanel commentPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
-            commentPanel.setBackground(new Color(250, 250, 250));
-            commentPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM HH:mm");
-            JLabel commentText = new JLabel("<html><b>" + comment.getUsername() + "</b> (" +
-                                           sdf.format(comment.getCreatedAt()) + "): " + comment.getContent() + "</html>");
-            commentText.setFont(new Font("Arial", Font.PLAIN, 11));
-            commentPanel.add(commentText);
-            if (SessionManager.getInstance().getCurrentUserId() == comment.getUserId()) {
-                JButton deleteBtn = new JButton("×");
-                deleteBtn.setFont(new Font("Arial", Font.BOLD, 14));
-                deleteBtn.setForeground(Color.RED);
-                deleteBtn.setFocusPainted(false);
-                deleteBtn.setBorderPainted(false);
-                deleteBtn.setContentAreaFilled(false);
-                deleteBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-                deleteBtn.addActionListener(e -> handleDeleteComment(comment.getId(), targetType, targetId));
-                commentPanel.add(deleteBtn);
-            }
-            panel.add(commentPanel);
+        JPanel commentListPanel = new JPanel();
+        commentListPanel.setLayout(new BoxLayout(commentListPanel, BoxLayout.Y_AXIS));
+        commentListPanel.setBackground(new Color(250, 250, 250));
+        commentListPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        panel.add(commentListPanel);
+        JButton loadMoreBtn = new JButton("Xem thêm bình luận");
+        loadMoreBtn.setFont(new Font("Arial", Font.PLAIN, 11));
+        loadMoreBtn.setFocusPainted(false);
+        loadMoreBtn.setBorderPainted(false);
+        loadMoreBtn.setContentAreaFilled(false);
+        loadMoreBtn.setForeground(new Color(0, 102, 204));
+        loadMoreBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        loadMoreBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
+        loadMoreBtn.setVisible(false);
+        loadMoreBtn.addActionListener(e -> loadMoreComments(commentListPanel, loadMoreBtn, targetType, targetId));
+        panel.add(loadMoreBtn);
+        if (commentCount > 0) {
+            loadMoreComments(commentListPanel, loadMoreBtn, targetType, targetId);
         }
         JPanel addCommentPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 5));
         addCommentPanel.setBackground(new Color(250, 250, 250));
@@ -301,6 +301,40 @@ public class QuestionDetailFrame extends JFrame {
         panel.add(addCommentPanel);
         return panel;
     }
+    private void loadMoreComments(JPanel commentListPanel, JButton loadMoreBtn, String targetType, int targetId) {
+        int afterId = loadMoreBtn.getClientProperty("afterId") != null ? (Integer) loadMoreBtn.getClientProperty("afterId") : 0;
+        List<Comment> comments = commentDAO.getCommentsByTarget(targetType, targetId, afterId, CommentDAO.DEFAULT_PAGE_SIZE + 1);
+        boolean hasMore = comments.size() > CommentDAO.DEFAULT_PAGE_SIZE;
+        if (hasMore) comments = comments.subList(0, CommentDAO.DEFAULT_PAGE_SIZE);
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM HH:mm");
+        for (Comment comment : comments) {
+            JPanel commentPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
+            commentPanel.setBackground(new Color(250, 250, 250));
+            commentPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            JLabel commentText = new JLabel("<html><b>" + comment.getUsername() + "</b> (" +
+                                           sdf.format(comment.getCreatedAt()) + "): " + comment.getContent() + "</html>");
+            commentText.setFont(new Font("Arial", Font.PLAIN, 11));
+            commentPanel.add(commentText);
+            if (SessionManager.getInstance().getCurrentUserId() == comment.getUserId()) {
+                JButton deleteBtn = new JButton("×");
+                deleteBtn.setFont(new Font("Arial", Font.BOLD, 14));
+                deleteBtn.setForeground(Color.RED);
+                deleteBtn.setFocusPainted(false);
+                deleteBtn.setBorderPainted(false);
+                deleteBtn.setContentAreaFilled(false);
+                deleteBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+                deleteBtn.addActionListener(e -> handleDeleteComment(comment.getId(), targetType, targetId));
+                commentPanel.add(deleteBtn);
+            }
+            commentListPanel.add(commentPanel);
+        }
+        if (!comments.isEmpty()) {
+            loadMoreBtn.putClientProperty("afterId", comments.get(comments.size() - 1).getId());
+        }
+        loadMoreBtn.setVisible(hasMore);
+        commentListPanel.revalidate();
+        commentListPanel.repaint();
+    }
     private void handleAddComment(String targetType, int targetId, String content) {
         Comment comment = new Comment(SessionManager.getInstance().getCurrentUserId(), targetType, targetId, content);
         boolean success = commentDAO.createComment(comment);
@@ -514,9 +548,9 @@ public class QuestionDetailFrame extends JFrame {
             protected RefreshData doInBackground() throws Exception {
                 Question updatedQuestion = questionDAO.findById(question.getId());
                 List<Answer> updatedAnswers = answerDAO.getAnswersByQuestion(question.getId());
-                int totalComments = commentDAO.getCommentCount("QUESTION", question.getId());
+                int totalComments = updatedQuestion != null ? updatedQuestion.getCommentCount() : 0;
                 for (Answer answer : updatedAnswers) {
-                    totalComments += commentDAO.getCommentCount("ANSWER", answer.getId());
+                    totalComments += answer.getCommentCount();
                 }
                 return new RefreshData(updatedQuestion, updatedAnswers, totalComments);
             }
@@ -1,10 +1,15 @@
 package com.askhub.ui;
+import com.askhub.dao.UserAvailability;
 import com.askhub.dao.UserDAO;
 import com.askhub.models.User;
 import com.askhub.utils.SessionManager;
 import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.util.function.Predicate;
 public class RegisterFrame extends JFrame {
     private JTextField usernameField;
     private JTextField emailField;
@@ -47,11 +52,13 @@ public class RegisterFrame extends JFrame {
         formPanel.add(createLabel("Tên đăng nhập:"), gbc);
         gbc.gridy = 1;
         usernameField = createTextField();
+        watchAvailability(usernameField, UserAvailability.getInstance()::isUsernameAvailable, "Tên đăng nhập đã tồn tại");
         formPanel.add(usernameField, gbc);
         gbc.gridy = 2;
         formPanel.add(createLabel("Email:"), gbc);
         gbc.gridy = 3;
         emailField = createTextField();
+        watchAvailability(emailField, UserAvailability.getInstance()::isEmailAvailable, "Email đã được sử dụng");
         formPanel.add(emailField, gbc);
         gbc.gridy = 4;
         formPanel.add(createLabel("Họ và tên:"), gbc);
@@ -109,6 +116,43 @@ public class RegisterFrame extends JFrame {
         field.setPreferredSize(new Dimension(300, 35));
         return field;
     }
+    // Flags a taken username/email once typing pauses; most checks never reach the database,
+    // but those that do run in a SwingWorker rather than on the EDT
+    private void watchAvailability(JTextField field, Predicate<String> available, String takenMessage) {
+        Border normal = field.getBorder();
+        Timer debounce = new Timer(400, e -> {
+            String value = field.getText().trim();
+            if (value.length() < 3) {
+                field.setBorder(normal);
+                field.setToolTipText(null);
+                return;
+            }
+            new SwingWorker<Boolean, Void>() {
+                @Override
+                protected Boolean doInBackground() throws Exception {
+                    return available.test(value);
+                }
+                @Override
+                protected void done() {
+                    // typing went on meanwhile: a later check has the current text
+                    if (!value.equals(field.getText().trim())) return;
+                    try {
+                        boolean taken = !get();
+                        field.setBorder(taken ? BorderFactory.createLineBorder(Color.RED, 2) : normal);
+                        field.setToolTipText(taken ? takenMessage : null);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }.execute();
+        });
+        debounce.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+            public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+            public void changedUpdate(DocumentEvent e) { debounce.restart(); }
+        });
+    }
     private void handleRegister(ActionEvent e) {
         String username = usernameField.getText().trim();
         String email = emailField.getText().trim();
@@ -136,17 +180,33 @@ public class RegisterFrame extends JFrame {
             showError("Mật khẩu xác nhận không khớp");
             return;
         }
-        if (userDAO.findByUsername(username) != null) {
-            showError("Tên đăng nhập đã tồn tại");
-            return;
-        }
-        if (userDAO.findByEmail(email) != null) {
-            showError("Email đã được sử dụng");
-            return;
-        }
         User user = new User(username, email, password, fullName);
-        boolean success = userDAO.createUser(user);
-        if (success) {
+        // the availability checks may query and createUser hashes the password: not on the EDT
+        registerButton.setEnabled(false);
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                if (!UserAvailability.getInstance().isUsernameAvailable(username)) return "Tên đăng nhập đã tồn tại";
+                if (!UserAvailability.getInstance().isEmailAvailable(email)) return "Email đã được sử dụng";
+                return userDAO.createUser(user) ? null : "Đăng ký thất bại. Vui lòng thử lại.";
+            }
+            @Override
+            protected void done() {
+                registerButton.setEnabled(true);
+                String error = "Đăng ký thất bại. Vui lòng thử lại.";
+                try {
+                    error = get();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+                onRegisterResult(user, error);
+            }
+        };
+        worker.execute();
+    }
+    // error: null once the account was created
+    private void onRegisterResult(User user, String error) {
+        if (error == null) {
             JOptionPane.showMessageDialog(this,
                     "Tạo tài khoản thành công!",
                     "Thành công",
@@ -158,7 +218,7 @@ public class RegisterFrame extends JFrame {
                 homeFrame.setVisible(true);
             });
         } else {
-            showError("Đăng ký thất bại. Vui lòng thử lại.");
+            showError(error);
         }
     }
     private void handleBackToLogin(ActionEvent e) {
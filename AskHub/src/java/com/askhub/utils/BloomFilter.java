@@ -0,0 +1,79 @@
+package com.askhub.utils;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Bloom filter over strings, thread-safe and lock-free: add() sets bits with
+ * CAS, mightContain() only reads them. No false negatives; false positives
+ * at about the requested rate while at most expectedInsertions strings are
+ * in. The k bit positions come from two seeded 64-bit hashes by double
+ * hashing.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final LongAdder insertions = new LongAdder();
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+    }
+    public void add(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // lost a race for another bit of the same word; retry
+            }
+        }
+        insertions.increment();
+    }
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+    // Insertions so far, counting repeats
+    public long getInsertions() {
+        return insertions.sum();
+    }
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+    public long getBitCount() {
+        return bitCount;
+    }
+    public int getHashCount() {
+        return hashCount;
+    }
+    // False positive rate at the current fill, (1 - e^(-kn/m))^k
+    public double estimatedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) getInsertions() / bitCount), hashCount);
+    }
+    // 64-bit mix of the UTF-16 chars (splitmix64 finalizer per step), seeded so two calls give independent hashes
+    private static long hash(String value, long seed) {
+        long h = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
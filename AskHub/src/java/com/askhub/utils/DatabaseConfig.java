@@ -1,28 +1,108 @@
 package com.askhub.utils;
+import com.askhub.logging.AppLog;
+import com.askhub.metrics.InstrumentedJdbc;
+import com.askhub.resilience.CircuitBreaker;
+import com.askhub.resilience.ConnectionLimiter;
+import com.askhub.resilience.Deadline;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
 public class DatabaseConfig {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/askhub";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "root";
-    private static final String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    private static final String DB_URL = System.getProperty("askhub.db.url", "jdbc:mysql://localhost:3306/askhub");
+    private static final String DB_USER = System.getProperty("askhub.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("askhub.db.password", "root");
+    private static final String DB_DRIVER = System.getProperty("askhub.db.driver", "com.mysql.cj.jdbc.Driver");
+    // Statement timing and the slow-query log; -Daskhub.sql.instrument=false hands out raw connections
+    private static final boolean INSTRUMENT = Boolean.parseBoolean(System.getProperty("askhub.sql.instrument", "true"));
+    // Fails fast while the database is down or slow instead of letting callers queue on connect;
+    // tuned with -Daskhub.db.breaker.* (see CircuitBreaker.fromSystemProperties)
+    private static final CircuitBreaker BREAKER = CircuitBreaker.fromSystemProperties("db", "askhub.db.breaker");
+    // Open connections allowed at once, -Daskhub.db.maxConcurrent; 0 (the default) leaves it to the request thread pool
+    private static volatile ConnectionLimiter limiter = newLimiter(Integer.getInteger("askhub.db.maxConcurrent", 0));
     static {
         try {
             Class.forName(DB_DRIVER);
         } catch (ClassNotFoundException e) {
-            throw new RuntimeException("MySQL JDBC Driver not found", e);
+            throw new RuntimeException("JDBC Driver not found: " + DB_DRIVER, e);
         }
+        DriverManager.setLoginTimeout(Integer.getInteger("askhub.db.connectTimeoutSec", 5));
     }
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return wrap(connect(DB_URL));
+    }
+    // For bulk tools that need extra driver options (e.g. rewriteBatchedStatements)
+    public static Connection getConnection(String extraParams) throws SQLException {
+        String url = DB_URL + (DB_URL.contains("?") ? "&" : "?") + extraParams;
+        return wrap(connect(url));
+    }
+    private static Connection connect(String url) throws SQLException {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            deadline.markTimedOut();
+            throw new SQLTimeoutException("request deadline passed before connect");
+        }
+        ConnectionLimiter permits = limiter;
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (SQLException e) {
+                if (!Deadline.timedOut()) BREAKER.noteTroubleOnThisThread();
+                throw e;
+            }
+        }
+        if (!BREAKER.tryAcquire()) {
+            if (permits != null) permits.release();
+            throw new SQLTransientConnectionException("database circuit breaker is open", "08001");
+        }
+        long start = System.nanoTime();
+        try {
+            Connection conn = DriverManager.getConnection(url, DB_USER, DB_PASSWORD);
+            BREAKER.onSuccess(System.nanoTime() - start);
+            return permits != null ? permits.releaseOnClose(conn) : conn;
+        } catch (SQLException e) {
+            BREAKER.onFailure(System.nanoTime() - start);
+            if (permits != null) permits.release();
+            throw e;
+        }
+    }
+    public static CircuitBreaker getCircuitBreaker() {
+        return BREAKER;
+    }
+    // null when connections are not limited
+    public static ConnectionLimiter getConnectionLimiter() {
+        return limiter;
+    }
+    // Connections already open keep the permit of the limiter they came from
+    public static void setMaxConcurrentConnections(int max) {
+        limiter = newLimiter(max);
+    }
+    private static ConnectionLimiter newLimiter(int max) {
+        return max > 0 ? new ConnectionLimiter(max) : null;
+    }
+    // Connection loss, timeouts and other transient errors count against the breaker;
+    // constraint violations and bad SQL do not
+    public static boolean isOutage(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException || (state != null && state.startsWith("08"));
+    }
+    private static Connection wrap(Connection conn) {
+        return INSTRUMENT ? InstrumentedJdbc.wrap(conn) : conn;
+    }
+    public static String getUrl() {
+        return DB_URL;
     }
     public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
                 conn.close();
             } catch (SQLException e) {
-                e.printStackTrace();
+                AppLog.error("DatabaseConfig.closeConnection", e);
             }
         }
     }
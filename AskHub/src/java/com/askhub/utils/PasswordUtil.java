@@ -1,27 +1,86 @@
 package com.askhub.utils;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
-import java.io.UnsupportedEncodingException;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+/**
+ * Password hashes in versioned formats, told apart by their prefix:
+ * "pbkdf2-sha256$<iterations>$<salt>$<hash>" (current, salted) and the
+ * legacy bare Base64 SHA-256 digest, still accepted so existing accounts
+ * can sign in. needsRehash() says when a stored hash is older than what
+ * hashPassword() would produce now, so login can upgrade it in place.
+ *
+ * Hashing costs tens of milliseconds of CPU on purpose; the API calls it
+ * through PasswordHasher, never on a request thread. -Daskhub.password.iterations
+ * sets the PBKDF2 cost (default 210000, see PasswordHashBenchmark).
+ */
 public class PasswordUtil {
+    private static final String PBKDF2 = "pbkdf2-sha256";
+    private static final int ITERATIONS = Integer.getInteger("askhub.password.iterations", 210000);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
     public static String hashPassword(String password) {
+        return hashPassword(password, ITERATIONS);
+    }
+    public static String hashPassword(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PBKDF2 + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+    public static boolean verifyPassword(String password, String hashedPassword) {
+        if (password == null || hashedPassword == null) return false;
+        if (!hashedPassword.startsWith(PBKDF2 + "$")) {
+            return MessageDigest.isEqual(sha256(password).getBytes(StandardCharsets.US_ASCII),
+                    hashedPassword.getBytes(StandardCharsets.US_ASCII));
+        }
+        String[] parts = hashedPassword.split("\\$");
+        if (parts.length != 4) return false;
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes("UTF-8"));
-            return Base64.getEncoder().encodeToString(hashedBytes);
-        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
-            throw new RuntimeException("Error hashing password", e);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, Integer.parseInt(parts[1])), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
-    public static boolean verifyPassword(String password, String hashedPassword) {
-        String hashedInput = hashPassword(password);
-        return hashedInput.equals(hashedPassword);
+    // True for legacy SHA-256 hashes and PBKDF2 hashes below the configured cost
+    public static boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || !hashedPassword.startsWith(PBKDF2 + "$")) return true;
+        String[] parts = hashedPassword.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
     }
     public static String generateSalt() {
-        SecureRandom random = new SecureRandom();
-        byte[] salt = new byte[16];
-        random.nextBytes(salt);
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    // The pre-PBKDF2 format: unsalted SHA-256, Base64
+    static String sha256(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error hashing password", e);
+        }
+    }
 }
@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'package:flutter/material.dart';
 import '../services/api_service.dart';
 
@@ -19,9 +20,13 @@ class RegisterPageState extends State<RegisterPage> {
   bool _obscurePassword = true;
   bool _obscureConfirmPassword = true;
   String? _errorMessage;
+  bool _usernameTaken = false;
+  bool _emailTaken = false;
+  Timer? _availabilityDebounce;
 
   @override
   void dispose() {
+    _availabilityDebounce?.cancel();
     _usernameController.dispose();
     _emailController.dispose();
     _passwordController.dispose();
@@ -67,6 +72,27 @@ class RegisterPageState extends State<RegisterPage> {
     }
   }
 
+  // Asks the server once typing pauses; a failed check just leaves the fields unflagged
+  void _scheduleAvailabilityCheck() {
+    _availabilityDebounce?.cancel();
+    _availabilityDebounce = Timer(const Duration(milliseconds: 400), () async {
+      final username = _usernameController.text.trim();
+      final email = _emailController.text.trim();
+      if (username.length < 3 && email.isEmpty) return;
+      try {
+        final result = await ApiService().checkAvailability(
+          username: username.length >= 3 ? username : null,
+          email: email.isNotEmpty ? email : null,
+        );
+        if (!mounted) return;
+        setState(() {
+          _usernameTaken = result['usernameAvailable'] == false;
+          _emailTaken = result['emailAvailable'] == false;
+        });
+      } catch (_) {}
+    });
+  }
+
   String? _validateUsername(String? value) {
     if (value == null || value.trim().isEmpty) {
       return 'Please enter a username';
@@ -74,6 +100,9 @@ class RegisterPageState extends State<RegisterPage> {
     if (value.length < 3) {
       return 'Username must be at least 3 characters';
     }
+    if (_usernameTaken) {
+      return 'Username is already taken';
+    }
     return null;
   }
 
@@ -85,6 +114,9 @@ class RegisterPageState extends State<RegisterPage> {
     if (!emailRegex.hasMatch(value)) {
       return 'Please enter a valid email';
     }
+    if (_emailTaken) {
+      return 'Email is already registered';
+    }
     return null;
   }
 
@@ -237,9 +269,11 @@ class RegisterPageState extends State<RegisterPage> {
                 TextFormField(
                   controller: _usernameController,
                   enabled: !_isLoading,
+                  onChanged: (_) => _scheduleAvailabilityCheck(),
                   decoration: InputDecoration(
                     labelText: 'Username',
                     hintText: 'Choose a username',
+                    errorText: _usernameTaken ? 'Username is already taken' : null,
                     prefixIcon: const Icon(Icons.account_circle),
                     border: OutlineInputBorder(
                       borderRadius: BorderRadius.circular(8),
@@ -258,9 +292,11 @@ class RegisterPageState extends State<RegisterPage> {
                   controller: _emailController,
                   enabled: !_isLoading,
                   keyboardType: TextInputType.emailAddress,
+                  onChanged: (_) => _scheduleAvailabilityCheck(),
                   decoration: InputDecoration(
                     labelText: 'Email',
                     hintText: 'Enter your email',
+                    errorText: _emailTaken ? 'Email is already registered' : null,
                     prefixIcon: const Icon(Icons.email),
                     border: OutlineInputBorder(
                       borderRadius: BorderRadius.circular(8),
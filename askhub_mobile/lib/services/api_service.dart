@@ -39,6 +39,17 @@ class ApiService {
     await prefs.setString('userRole', role);
   }
 
+  // Session token from login, sent as "Authorization: Bearer <token>"
+  static Future<String?> getSessionToken() async {
+    final prefs = await _prefs;
+    return prefs.getString('sessionToken');
+  }
+
+  static Future<void> setSessionToken(String token) async {
+    final prefs = await _prefs;
+    await prefs.setString('sessionToken', token);
+  }
+
   // Check if current user is admin
   static Future<bool> isAdmin() async {
     final role = await getCurrentUserRole();
@@ -52,21 +63,17 @@ class ApiService {
     final prefs = await _prefs;
     await prefs.remove('userId');
     await prefs.remove('userRole');
+    await prefs.remove('sessionToken');
   }
 
-  // Helper to get headers with user ID and admin flag
+  // Helper to get headers with the session token; the server reads user and admin role from it
   Future<Map<String, String>> _getHeaders({bool isAdmin = false}) async {
-    final userId = await getCurrentUserId();
-    // Auto-detect admin if not explicitly set
-    if (!isAdmin) {
-      isAdmin = await ApiService.isAdmin();
-    }
+    final token = await getSessionToken();
     final headers = <String, String>{
       'Content-Type': 'application/json',
-      if (userId != null) 'X-User-Id': userId.toString(),
-      if (isAdmin) 'X-Admin': 'true',
+      if (token != null) 'Authorization': 'Bearer $token',
     };
-    print('_getHeaders: userId = $userId, isAdmin = $isAdmin, headers = $headers');
+    print('_getHeaders: signedIn = ${token != null}, isAdmin = $isAdmin');
     return headers;
   }
 
@@ -89,6 +96,20 @@ class ApiService {
     }
   }
 
+  // Live "already taken?" check for the registration form; pass either or both
+  Future<Map<String, dynamic>> checkAvailability({String? username, String? email}) async {
+    final uri = Uri.parse('$baseUrl/users/availability').replace(queryParameters: {
+      if (username != null) 'username': username,
+      if (email != null) 'email': email,
+    });
+    final response = await http.get(uri);
+    if (response.statusCode == 200) {
+      return json.decode(response.body);
+    } else {
+      throw Exception('Availability check failed: ${response.body}');
+    }
+  }
+
   Future<Map<String, dynamic>> login(String username, String password) async {
     final response = await http.post(
       Uri.parse('$baseUrl/login'),
@@ -101,6 +122,7 @@ class ApiService {
     if (response.statusCode == 200) {
       final user = json.decode(response.body);
       await setCurrentUserId(user['id']);
+      await setSessionToken(user['token']);
       // Save user role for admin check - normalize to uppercase
       if (user['role'] != null) {
         final role = user['role'].toString().toUpperCase();